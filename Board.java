@@ -17,16 +17,31 @@ import java.util.Scanner;
  */
 public class Board {
 	
-	private static char[] columns; // [A,B,C,D,E,F,G,H]
-	private static PieceInterface king, queen, rook, bishop, knight, pawn;
+	private char[] columns; // [A,B,C,D,E,F,G,H]
+	private PieceInterface king, queen, rook, bishop, knight, pawn;
 	private boolean blackInCheck, whiteInCheck;
 
+	// Which kings and rooks have left their starting squares (bits as in CastleSync).
+	// Saved in every undo record, so undoMove() simply restores it.
+	private byte castleFlags;
+
+	// The square a pawn has just passed over with a double step, or -1. Only set when an
+	// enemy pawn stands ready to take it en passant, so it is part of the position's identity.
+	private int epSquare;
+
+	// Whose turn it is: the opposite colour to the last piece moved.
+	private Colour sideToMove;
+
+	// Zobrist key (see Zobrist) of the current position, kept up to date by every change
+	// to the bitboards, castleFlags, epSquare and sideToMove.
+	private long hash;
+
 	// Used to indicate end game states: either a mate or stale. If the game is not
 	// over, is kept blank.
 	public String gameOver;
 
-	// A linked list detailing the exact board changes between one state and the next.
-	public OldPosition moveHistory;
+	// A stack detailing the exact board changes between one state and the next.
+	public MoveHistory moveHistory;
 
 	// pieces and pieceNames together provide a complete board specification. Each element of 
 	// pieces contains the following bits; [7]: colour (0=white, 1=black); [6] in play (1=in play,
@@ -40,7 +55,37 @@ public class Board {
 	// board is a direct representation of a chess board: an 8x8 matrix. If no piece is on
 	// square (x,y), board[x][y] == -128, else: board[ (56 & pieces[i]) >> 3 ][ (7 & pieces[i]) ] == i
 	public byte[][] board;
-	
+
+	// Bitboards mirror pieces and board. Bit (col<<3 | row) is set when that square is occupied,
+	// so the low six bits of a pieces[] entry can be used directly as a bit index. The first
+	// index of pieceBoards is the colour (0 = black, 1 = white, the same split as pieces[0-15]
+	// and pieces[16-31]), the second is the piece type (see KING through PAWN below).
+	public long[][] pieceBoards;
+	public long[] colourBoards;
+	public long occupied;
+
+	// piece type indices for pieceBoards, in the same order as the key in #fillPieces()
+	public static final int KING = 0;
+	public static final int QUEEN = 1;
+	public static final int ROOK = 2;
+	public static final int BISHOP = 3;
+	public static final int KNIGHT = 4;
+	public static final int PAWN = 5;
+
+	// Room needed by a move buffer for one side's moves: no position can have more
+	// than 16*27 (every piece a queen in the centre of an empty board).
+	public static final int MAX_MOVES = 432;
+
+	// piece values used by #see(int), indexed by type (KING to PAWN); the same
+	// scale as Computer's evaluation
+	public static final int[] SEE_VALUES = {200, 9, 5, 3, 3, 1};
+
+	// kinds of move for #generateMoves(Colour,int[],int,int): noisy moves are captures
+	// (including en passant) and promotions, quiet moves are everything else
+	public static final int GEN_ALL = 0;
+	public static final int GEN_NOISY = 1;
+	public static final int GEN_QUIET = 2;
+
 	// ASCII output is terrible for chess, but I have no experience with Swing. In an attempt to 
 	// make the output more clear, colour can be used in *nix systems to differentiate between
 	// players (this has only been tested in OS X however). The colour codes were taken from:
@@ -50,8 +95,11 @@ public class Board {
 	public static final String YELLOW = "\u001B[33m";
 	public static final String RESET = "\u001B[0m";
 
-	// used as a dummy player to catch pawn promotions when detecting check
-	private Shell shell = new Shell();
+	// scratch space for #generateMoves(int,int[],int), one piece's moves at most
+	private byte[] scratch = new byte[32];
+
+	// scratch space for #see(int), one entry per capture in the exchange
+	private int[] scratchGain = new int[33];
 	
 	/** 
 	 * Initializes gameOver string and detects *nix systems.
@@ -59,6 +107,8 @@ public class Board {
 	public Board () {
 		gameOver = "";
 		isUnix = detectUnix();
+		epSquare = -1;
+		sideToMove = Colour.WHITE;
 	}
 	
 	/**
@@ -85,7 +135,7 @@ public class Board {
 	public BoardOptions setupBoard () {
 		System.out.println("<loading swing>");
 
-		initVars(); // piece interfaces and moveHistory linked list
+		initVars(); // piece interfaces and moveHistory stack
 
 		BoardGUI gui = new BoardGUI();
 		BoardOptions options = gui.askBoard();
@@ -96,14 +146,15 @@ public class Board {
 		}
 
 		fillPieces(options.board); // populate pieces and pieceNames
-		fillBoard(); // populate board, set checks and castling variables
+		sideToMove = options.firstColour;
+		fillBoard(); // populate board, set checks, castling variables and hash
 
 		return options;
 	}
 	
 	/**
 	 * Gain access to each piece type's movement generation and validation methods,
-	 * and initilize the linked list of previous moves (moveHistory).
+	 * and initilize the stack of previous moves (moveHistory).
 	 */
 	private void initVars () {
 		pawn = new Pawn(this);
@@ -113,46 +164,76 @@ public class Board {
 		queen = new Queen(this);
 		king = new King(this);
 		
-		moveHistory = new OldPosition();
+		moveHistory = new MoveHistory();
 	}
 	
+	/**
+	 * Rebuild a Board from a snapshot, without the GUI or any console output. The
+	 * new Board has no move history, so it cannot undo past this position. Used to
+	 * give each search thread or analysis job its own Board.
+	 * 
+	 * @param position  from #getPosition() of any Board
+	 */
+	public Board (Position position) {
+		this();
+		initVars();
+
+		pieces = new byte[32];
+		pieceNames = new byte[32];
+		position.unpack(pieces,pieceNames);
+		fillSquares();
+
+		castleFlags = position.castleFlags();
+		epSquare = position.epSquare();
+		sideToMove = position.sideToMove();
+
+		// as in boardMove(), only keep an en passant square that can be taken
+		int own = (sideToMove == Colour.BLACK) ? 0 : 1;
+		if (epSquare >= 0 && (Pawn.attacks(1-own,epSquare) & pieceBoards[own][PAWN]) == 0)
+			epSquare = -1;
+		hash = computeHash();
+
+		calcCheck(Colour.BLACK);
+		calcCheck(Colour.WHITE);
+	}
+
+	/**
+	 * Take a snapshot of the current position, which can be handed to another
+	 * thread and turned back into a Board with #Board(Position).
+	 * 
+	 * @return an immutable copy of pieces, pieceNames, castling flags, en passant
+	 *         square and side to move
+	 */
+	public Position getPosition () {
+		return new Position(pieces,pieceNames,castleFlags,epSquare,sideToMove);
+	}
+
 	/**
 	 * Create and populate the board (must be called after #fillPieces()).
 	 * Calculate check states, and whether or not castling can occur.
 	 * Inform user on how to interpret the board.
 	 */
 	private void fillBoard () {
-		// column labels (A-H)
-		columns = new char[8];
-		for (int i = 0; i < 8; i++) {
-			columns[i] = (char) (i+65);
-		}
-		
-		// fill board
-		board = new byte[8][8];
-		for (int i = 0; i < 8; i++) {
-			for (int j = 0; j < 8; j++) {
-				board[i][j] = -128;
-			}
-		}
-		for (int i = 0; i < 32; i++) {
-			if (pieces[i] != 0)
-				board[(pieces[i]&56)>>3][pieces[i]&7] = (byte) i;
-		}
-		
-		// update CastleSync
+		fillSquares();
+
+		// update castling flags
+		castleFlags = 0;
 		if (board[4][7] != 0)
-			CastleSync.set((byte)-25);
+			castleFlags = CastleSync.set(castleFlags,(byte)-25);
 		if (board[4][0] != 16)
-			CastleSync.set((byte)96);
+			castleFlags = CastleSync.set(castleFlags,(byte)96);
 		if (board[0][7] == -128 || board[0][7] > 15 || pieceNames[board[0][7]] != 'R')
-			CastleSync.set((byte)-57);
+			castleFlags = CastleSync.set(castleFlags,(byte)-57);
 		if (board[7][7] == -128 || board[7][7] > 15 || pieceNames[board[7][7]] != 'R')
-			CastleSync.set((byte)-1);
+			castleFlags = CastleSync.set(castleFlags,(byte)-1);
 		if (board[0][0] < 16 || pieceNames[board[0][0]] != 'R')
-			CastleSync.set((byte)64);
+			castleFlags = CastleSync.set(castleFlags,(byte)64);
 		if (board[7][0] < 16 || pieceNames[board[7][0]] != 'R')
-			CastleSync.set((byte)120);
+			castleFlags = CastleSync.set(castleFlags,(byte)120);
+
+		// a set up board has no double step to take en passant
+		epSquare = -1;
+		hash = computeHash();
 
 		// update check information
 		calcCheck(Colour.BLACK);
@@ -168,6 +249,31 @@ public class Board {
 		}
 	}
 	
+	/**
+	 * Create and populate board, the bitboards and the column labels from pieces
+	 * and pieceNames.
+	 */
+	private void fillSquares () {
+		// column labels (A-H)
+		columns = new char[8];
+		for (int i = 0; i < 8; i++) {
+			columns[i] = (char) (i+65);
+		}
+		
+		// fill board
+		board = new byte[8][8];
+		for (int i = 0; i < 8; i++) {
+			for (int j = 0; j < 8; j++) {
+				board[i][j] = -128;
+			}
+		}
+		for (int i = 0; i < 32; i++) {
+			if ((64&pieces[i]) == 64)
+				board[(pieces[i]&56)>>3][pieces[i]&7] = (byte) i;
+		}
+		fillBitboards();
+	}
+
 	/**
 	 * Parse the user-supplied board, and use that data to create and populate
 	 * the pieces and pieceNames arrays. User supplied board has already been 
@@ -177,13 +283,25 @@ public class Board {
 	 * 				  lowercase chars corresponding to piece codes.
 	 */
 	private void fillPieces (char[][] config) {
+		pieces = new byte[32];
+		pieceNames = new byte[32]; // these are really just chars
+		fillPieces(config,pieces,pieceNames);
+	}
+
+	/**
+	 * Shared by #fillPieces(char[][]) and Position#fromFEN(String).
+	 * 
+	 * @param config  board[col][row] of piece codes, uppercase black and lowercase
+	 *                white, zero if empty; at most 16 pieces of each colour
+	 * @param pieces  array of 32 zeros to fill
+	 * @param pieceNames  array of 32 zeros to fill
+	 */
+	static void fillPieces (char[][] config, byte[] pieces, byte[] pieceNames) {
 		// pieces[x] bits;
 		// 7 = colour (0 = white, 1 = black)
 		// 6 = inPlay (0 = not in play (captured), 1 = in play)
 		// 5-3 = x coordinate
 		// 2-0 = y coordinate
-		pieces = new byte[32];
-		pieceNames = new byte[32]; // these are really just chars
 		
 		// Order of the pieces array, never changes. Only pawns may get promoted to other pieces.
 		String key = "KQRRBBNNPPPPPPPPkqrrbbnnpppppppp";
@@ -217,6 +335,82 @@ public class Board {
 		}
 	}
 	
+	/**
+	 * Create and populate the bitboards from pieces and pieceNames (must be called
+	 * after #fillPieces()). From then on they are kept in sync by #boardMove() and
+	 * #undoMove().
+	 */
+	private void fillBitboards () {
+		pieceBoards = new long[2][6];
+		colourBoards = new long[2];
+		occupied = 0L;
+		for (int i = 0; i < 32; i++) {
+			if ((64&pieces[i]) == 64)
+				toggleBitboards(i,63&pieces[i]);
+		}
+	}
+
+	/**
+	 * Flip a single square in the bitboards of a piece. Placing and removing a piece
+	 * are the same operation, so this is called once when a piece leaves a square and
+	 * once when it arrives. pieceNames[index] must hold the type of the piece as it
+	 * is (or was) on that square.
+	 *
+	 * @param index   of pieces array (and also pieceNames)
+	 * @param square  the square to flip, (col<<3 | row)
+	 */
+	private void toggleBitboards (int index, int square) {
+		long bit = 1L << square;
+		int colour = (index < 16) ? 0 : 1;
+		int type = typeOf(pieceNames[index]);
+		pieceBoards[colour][type] ^= bit;
+		colourBoards[colour] ^= bit;
+		occupied ^= bit;
+		hash ^= Zobrist.piece(colour,type,square);
+	}
+
+	/**
+	 * Calculate the Zobrist key of the current position from scratch. Board
+	 * keeps its key up to date incrementally; this is used when a position is
+	 * set up, and can be compared against #getHash() when debugging.
+	 *
+	 * @return the Zobrist key
+	 */
+	public long computeHash () {
+		long key = 0L;
+		for (int i = 0; i < 32; i++) {
+			if ((64&pieces[i]) == 64)
+				key ^= Zobrist.piece((i < 16) ? 0 : 1,typeOf(pieceNames[i]),63&pieces[i]);
+		}
+		key ^= Zobrist.castle(castleFlags);
+		key ^= Zobrist.enPassant(epSquare);
+		if (sideToMove == Colour.BLACK)
+			key ^= Zobrist.black();
+		return key;
+	}
+
+	/**
+	 * Translate a pieceNames entry into a pieceBoards type index.
+	 *
+	 * @param name  a piece code (K,Q,R,B,N,P)
+	 * @return one of KING, QUEEN, ROOK, BISHOP, KNIGHT or PAWN
+	 */
+	public static int typeOf (byte name) {
+		switch (name) {
+			case 'K':
+				return KING;
+			case 'Q':
+				return QUEEN;
+			case 'R':
+				return ROOK;
+			case 'B':
+				return BISHOP;
+			case 'N':
+				return KNIGHT;
+		}
+		return PAWN;
+	}
+
 	/** Print a textual representation of the board to console. */
 	public void printBoard () {
 		// print column labels (chars A-H)
@@ -291,20 +485,56 @@ public class Board {
 		return null;
 	}
 	
+	/**
+	 * Used by King to decide if castling is still possible, and by Computer
+	 * to reward/punish castling moves.
+	 * 
+	 * @return castling flags, bits as in CastleSync
+	 */
+	public byte getCastleFlags () {
+		return castleFlags;
+	}
+
+	/**
+	 * Used by Pawn to find en passant captures.
+	 * 
+	 * @return the square a pawn has just passed over with a double step, if an
+	 *         enemy pawn could take it en passant, or -1
+	 */
+	public int getEpSquare () {
+		return epSquare;
+	}
+
+	/**
+	 * @return the colour to move next, the opposite of the last piece moved
+	 */
+	public Colour getSideToMove () {
+		return sideToMove;
+	}
+
+	/**
+	 * Covers piece placement, side to move, castling rights and the en passant file.
+	 * 
+	 * @return Zobrist key of the current position (see Zobrist)
+	 */
+	public long getHash () {
+		return hash;
+	}
+
 	/**
 	 * Undo the previous move based on moveHistory. Handles all relevant checking and
 	 * castling states.
 	 * 
-	 * @return true unless moveHistory has no more links
+	 * @return true unless moveHistory is empty
 	 */
 	public boolean undoMove () {
-		if (moveHistory.prev == null)
+		if (moveHistory.isEmpty())
 			return false;
 		
-		byte p0 = moveHistory.pieces[0];
-		byte p1 = moveHistory.pieces[1];
-		byte p2 = moveHistory.pieces[2];
-		byte p3 = moveHistory.pieces[3];
+		byte p0 = moveHistory.flags();
+		byte p1 = moveHistory.index();
+		byte p2 = moveHistory.old();
+		byte p3 = moveHistory.captured();
 		
 		// check for and handle castling
 		if ((8&p0) == 8) {
@@ -314,15 +544,15 @@ public class Board {
 				board[7][7] = board[5][7];
 				board[5][7] = -128;
 				pieces[board[7][7]] = -1;
-				CastleSync.reset((byte)-25);
-				CastleSync.reset((byte)-1);
+				toggleBitboards(board[7][7],47);
+				toggleBitboards(board[7][7],63);
 			} else {
 				// white rook
 				board[7][0] = board[5][0];
 				board[5][0] = -128;
 				pieces[board[7][0]] = 120;
-				CastleSync.reset((byte)96);
-				CastleSync.reset((byte)120);
+				toggleBitboards(board[7][0],40);
+				toggleBitboards(board[7][0],56);
 			}
 		} else if ((4&p0) == 4) {
 			// queenside castle
@@ -331,33 +561,28 @@ public class Board {
 				board[0][7] = board[3][7];
 				board[3][7] = -128;
 				pieces[board[0][7]] = -57;
-				CastleSync.reset((byte)-25);
-				CastleSync.reset((byte)-57);
+				toggleBitboards(board[0][7],31);
+				toggleBitboards(board[0][7],7);
 			} else {
 				// white rook
 				board[0][0] = board[3][0];
 				board[3][0] = -128;
 				pieces[board[0][0]] = 64;
-				CastleSync.reset((byte)96);
-				CastleSync.reset((byte)64);
-			}
-		} else if ((2&p0) == 2) {
-			if (p1 < 16) {
-				// black piece
-				CastleSync.reset(p2);
-			} else {
-				// white piece
-				CastleSync.reset(p2);
+				toggleBitboards(board[0][0],24);
+				toggleBitboards(board[0][0],0);
 			}
 		} else if ((1&p0) == 1) {
 			// change back to a pawn
+			toggleBitboards(p1,63&pieces[p1]);
 			pieceNames[p1] = 'P';
+			toggleBitboards(p1,63&pieces[p1]);
 		}
 		
 		if ((-64&p0) != 0) {
 			// captured a piece
 			pieces[p3] = (byte) (64 | pieces[p3]);
 			board[(56&pieces[p3])>>3][7&pieces[p3]] = p3;
+			toggleBitboards(p3,63&pieces[p3]);
 			if ((-128&p0) == -128) {
 				// en passant
 				board[(56&pieces[p3])>>3][7&pieces[p1]] = -128;
@@ -367,6 +592,8 @@ public class Board {
 		}
 		
 		board[(56&p2)>>3][7&p2] = p1;
+		toggleBitboards(p1,63&pieces[p1]);
+		toggleBitboards(p1,63&p2);
 		pieces[p1] = p2;
 		
 		// black was in check
@@ -382,10 +609,41 @@ public class Board {
 		} else {
 			whiteInCheck = false;
 		}
-		
-		moveHistory = moveHistory.prev;
+
+		castleFlags = moveHistory.castle();
+		epSquare = moveHistory.enPassant();
+		sideToMove = (p1 < 16) ? Colour.BLACK : Colour.WHITE;
+		hash = moveHistory.hash();
+		moveHistory.pop();
 		return true;
 	}
+
+	/**
+	 * Pass the turn without moving a piece, for null move pruning. Nothing on the
+	 * board changes, but the en passant square is cleared (the pawn could only be
+	 * taken straight away) and the hash key is updated to match. Must be undone
+	 * with #undoNullMove(), not #undoMove().
+	 */
+	public void makeNullMove () {
+		moveHistory.push();
+		moveHistory.setCastle(castleFlags);
+		moveHistory.setEnPassant(epSquare);
+		moveHistory.setHash(hash);
+
+		hash ^= Zobrist.enPassant(epSquare) ^ Zobrist.black();
+		epSquare = -1;
+		sideToMove = (sideToMove == Colour.BLACK) ? Colour.WHITE : Colour.BLACK;
+	}
+
+	/**
+	 * Undo #makeNullMove(), restoring the en passant square and hash key.
+	 */
+	public void undoNullMove () {
+		epSquare = moveHistory.enPassant();
+		hash = moveHistory.hash();
+		sideToMove = (sideToMove == Colour.BLACK) ? Colour.WHITE : Colour.BLACK;
+		moveHistory.pop();
+	}
 	
 	/**
 	 * Before any values are actually changed, ensure a move makes mechanical sense.
@@ -412,79 +670,191 @@ public class Board {
 	}
 
 	/**
-	 * Verify castling king is not escaping check or moving through check. 
+	 * Verify castling king is not escaping check or moving through check. Both are
+	 * answered by looking outward from the square, without moving the king.
 	 * 
 	 * @param  current, the current location of the king (must be on the E file, and a back rank)
 	 * @param  newKing, the king's next location
 	 * @return true if castling is allowed, false otherwise
 	 */
 	private boolean canCastle (byte current, byte newKing) {
-		boolean out = true;
 		switch (newKing) {
 			case -9:
-				// black kingside
-				if (blackInCheck) { return false; }
-				// (5,7) cannot be in check
-				boardMove(shell,current,(byte)-17);
-				calcCheck(Colour.BLACK);
-				if (blackInCheck) { out = false; }
-				undoMove();
-				break;
+				// black kingside, (5,7) cannot be attacked
+				return !isSquareAttacked(63&current,Colour.WHITE) && !isSquareAttacked(47,Colour.WHITE);
 			case -41:
-				// black queenside
-				if (blackInCheck) { return false; }
-				// (2,7) cannot be in check
-				boardMove(shell,current,(byte)-33);
-				calcCheck(Colour.BLACK);
-				if (blackInCheck) { out = false; }
-				undoMove();
-				break;
+				// black queenside, (3,7) cannot be attacked
+				return !isSquareAttacked(63&current,Colour.WHITE) && !isSquareAttacked(31,Colour.WHITE);
 			case 112:
-				// white kingside
-				if (whiteInCheck) { return false; }
-				// (5,0) cannot be in check
-				boardMove(shell,current,(byte)104);
-				calcCheck(Colour.WHITE);
-				if (whiteInCheck) { out = false; }
-				undoMove();
-				break;
+				// white kingside, (5,0) cannot be attacked
+				return !isSquareAttacked(63&current,Colour.BLACK) && !isSquareAttacked(40,Colour.BLACK);
 			case 80:
-				// white queenside
-				if (whiteInCheck) { return false; }
-				// (2,0) cannot be in check
-				boardMove(shell,current,(byte)88);
-				calcCheck(Colour.WHITE);
-				if (whiteInCheck) { out = false; }
-				undoMove();
-				break;
+				// white queenside, (3,0) cannot be attacked
+				return !isSquareAttacked(63&current,Colour.BLACK) && !isSquareAttacked(24,Colour.BLACK);
 		}
+		return true;
+	}
 
-		return out;
+	/**
+	 * Is square attacked by any piece of the given colour? Rather than trying every
+	 * enemy piece, this looks outward from square: a rook, bishop, knight, king or pawn
+	 * placed there would attack exactly the enemy pieces of that type which attack it.
+	 * 
+	 * @param square  (col<<3 | row)
+	 * @param by  the attacking colour
+	 * @return true if at least one piece of colour by attacks square
+	 */
+	public boolean isSquareAttacked (int square, Colour by) {
+		return attackers(square,by,occupied) != 0;
+	}
+
+	/**
+	 * Every piece of one colour attacking a square, for a given occupancy (which can
+	 * differ from the board's, e.g. with a piece lifted off).
+	 * 
+	 * @param square  (col<<3 | row)
+	 * @param by  the attacking colour
+	 * @param occ  occupied squares, blocking sliders
+	 * @return a bitboard of the attackers
+	 */
+	private long attackers (int square, Colour by, long occ) {
+		int c = (by == Colour.BLACK) ? 0 : 1;
+		long[] pb = pieceBoards[c];
+		return (Pawn.attacks(1-c,square) & pb[PAWN])
+			| (Knight.attacks(square) & pb[KNIGHT])
+			| (King.attacks(square) & pb[KING])
+			| (Magic.bishopAttacks(square,occ) & (pb[BISHOP] | pb[QUEEN]))
+			| (Magic.rookAttacks(square,occ) & (pb[ROOK] | pb[QUEEN]));
 	}
 	
+	/**
+	 * Whether a move checks the enemy king, found by making and unmaking it.
+	 * 
+	 * @param move  a legal packed move (see Move)
+	 * @return true if the mover's opponent is in check once move is made
+	 */
+	public boolean givesCheck (int move) {
+		if (!boardMove(move))
+			return false;
+		int own = (Move.piece(move) < 16) ? 0 : 1;
+		boolean out = isSquareAttacked(63&pieces[16-16*own],(own == 0) ? Colour.BLACK : Colour.WHITE);
+		undoMove();
+		return out;
+	}
+
+	/**
+	 * Static exchange evaluation: the material won or lost on the target square if
+	 * both sides keep recapturing there with their least valuable piece, and either
+	 * side may stop when carrying on would lose material. Sliders lined up behind
+	 * an attacker join in as the pieces in front are taken. Nothing is moved, and
+	 * pins are not considered. Uses the classical piece values of Computer's
+	 * evaluation (pawn = 1), see SEE_VALUES.
+	 * 
+	 * @param move  a packed move (see Move) of the side to move, normally a capture
+	 * @return material balance for the side making move, at least zero is safe
+	 */
+	public int see (int move) {
+		int to = Move.to(move);
+		int index = Move.piece(move);
+		int own = (index < 16) ? 0 : 1;
+		int[] gain = scratchGain;
+
+		// first capture: take the victim, promote if need be
+		int promo = Move.promotion(move);
+		int onSquare = (promo != 0) ? promo : typeOf(pieceNames[index]);
+		gain[0] = Move.isCapture(move) ? SEE_VALUES[typeOf(pieceNames[Move.captured(move)])] : 0;
+		if (promo != 0)
+			gain[0] += SEE_VALUES[promo] - SEE_VALUES[PAWN];
+
+		long occ = occupied ^ (1L << Move.from(move));
+		if (Move.isEnPassant(move))
+			occ ^= 1L << (63&pieces[Move.captured(move)]);
+
+		int side = 1-own;
+		int d = 0;
+		for ( ; ; ) {
+			long att = attackers(to,(side == 0) ? Colour.BLACK : Colour.WHITE,occ) & occ;
+			if (att == 0)
+				break;
+
+			// least valuable attacker
+			int type = PAWN;
+			long from = att & pieceBoards[side][PAWN];
+			for (int t = KNIGHT; from == 0; t--) {
+				type = t;
+				from = att & pieceBoards[side][t];
+			}
+			from &= -from;
+
+			// a king may only take last
+			if (type == KING && (attackers(to,(side == 0) ? Colour.WHITE : Colour.BLACK,occ ^ from) & (occ ^ from)) != 0)
+				break;
+
+			// every capture counts, even one that leaves the capturing side behind (it
+			// may still lose less than standing pat); the sides choose below
+			d++;
+			gain[d] = SEE_VALUES[onSquare] - gain[d-1];
+			onSquare = type;
+			occ ^= from;
+			side = 1-side;
+		}
+
+		// each side may stand pat instead of capturing
+		for ( ; d > 0; d--)
+			gain[d-1] = -Math.max(-gain[d-1],gain[d]);
+		return gain[0];
+	}
+
 	/**
 	 * Make a move. Recognizes captures, pawn promotions, and castling. Updates pieces,
 	 * pieceNames, board, and moveHistory. Does not check check.
 	 * 
 	 * @param player  the player making the move (required in case a pawn gets promoted).
-	 * @param c  the player's colour (required for castling)
 	 * @param current  an item from the pieces array
 	 * @param next  a new entry for the pieces array
 	 * @return true unless castling failed
 	 */
 	public boolean boardMove (PlayerInterface player, byte current, byte next) {
+		return doMove(player,current,next,(char) 0);
+	}
+
+	/**
+	 * Make a packed move (see Move). The promotion, if any, is part of the move,
+	 * so no player is consulted. Does not check check.
+	 * 
+	 * @param move  a move from #generateMoves() or #encodeMove(byte,byte,int)
+	 * @return true unless castling failed
+	 */
+	public boolean boardMove (int move) {
+		byte current = pieces[Move.piece(move)];
+		return doMove(null,current,(byte) (-64&current | Move.to(move)),Move.promotionChar(move));
+	}
+
+	/**
+	 * Shared implementation of both boardMove() forms.
+	 * 
+	 * @param player  asked for a promotion piece if promo is zero
+	 * @param current  an item from the pieces array
+	 * @param next  a new entry for the pieces array
+	 * @param promo  promotion piece code (Q,R,B,N), or zero to ask player
+	 * @return true unless castling failed
+	 */
+	private boolean doMove (PlayerInterface player, byte current, byte next, char promo) {
 		byte oldCol = (byte) ((56&current)>>3);
 		byte oldRow = (byte) (7&current);
 		byte newCol = (byte) ((56&next)>>3);
 		byte newRow = (byte) (7&next);
 		PieceInterface pi = getPiece(board[oldCol][oldRow]);
-		moveHistory = new OldPosition(moveHistory);
+		moveHistory.push();
+		moveHistory.setCastle(castleFlags);
+		moveHistory.setEnPassant(epSquare);
+		moveHistory.setHash(hash);
 		
 		// check for and handle castling
 		if (pieceNames[board[oldCol][oldRow]] == 'K') {
 			if (Math.abs(newCol-oldCol) == 2) {
 				if (!canCastle(current,next)) {
-					moveHistory = moveHistory.prev;
+					moveHistory.pop();
 					return false; // only time this method does not return true
 				} else {
 					if (newCol == 6) {
@@ -494,17 +864,21 @@ public class Board {
 							pieces[board[7][7]] = -17;
 							board[5][7] = board[7][7];
 							board[7][7] = -128;
-							CastleSync.set((byte)-25);
-							CastleSync.set((byte)-1);
+							toggleBitboards(board[5][7],63);
+							toggleBitboards(board[5][7],47);
+							castleFlags = CastleSync.set(castleFlags,(byte)-25);
+							castleFlags = CastleSync.set(castleFlags,(byte)-1);
 						} else {
 							// white rook
 							pieces[board[7][0]] = 104;
 							board[5][0] = board[7][0];
 							board[7][0] = -128;
-							CastleSync.set((byte)96);
-							CastleSync.set((byte)120);
+							toggleBitboards(board[5][0],56);
+							toggleBitboards(board[5][0],40);
+							castleFlags = CastleSync.set(castleFlags,(byte)96);
+							castleFlags = CastleSync.set(castleFlags,(byte)120);
 						}
-						moveHistory.pieces[0] = 8;
+						moveHistory.setFlags(8);
 					} else {
 						// castle queenside
 						if (oldRow == 7) {
@@ -512,68 +886,445 @@ public class Board {
 							pieces[board[0][7]] = -33;
 							board[3][7] = board[0][7];
 							board[0][7] = -128;
-							CastleSync.set((byte)-25);
-							CastleSync.set((byte)-57);
+							toggleBitboards(board[3][7],7);
+							toggleBitboards(board[3][7],31);
+							castleFlags = CastleSync.set(castleFlags,(byte)-25);
+							castleFlags = CastleSync.set(castleFlags,(byte)-57);
 						} else {
 							// white rook
 							pieces[board[0][0]] = 88;
 							board[3][0] = board[0][0];
 							board[0][0] = -128;
-							CastleSync.set((byte)96);
-							CastleSync.set((byte)64);
+							toggleBitboards(board[3][0],0);
+							toggleBitboards(board[3][0],24);
+							castleFlags = CastleSync.set(castleFlags,(byte)96);
+							castleFlags = CastleSync.set(castleFlags,(byte)64);
 						}
-						moveHistory.pieces[0] = 4;
+						moveHistory.setFlags(4);
 					}
 				}
 			} else {
 				if (current == -25 || current == 96) {
 					// sync not castle (rooks/king moved from default square)
-					CastleSync.set(current);
-					moveHistory.pieces[0] = 2;
+					castleFlags = CastleSync.set(castleFlags,current);
+					moveHistory.setFlags(2);
 				}
 			}
 		} else if (pieceNames[board[oldCol][oldRow]] == 'R') {
 			if (current == -57 || current == -1 || current == 64 || current == 120) {
 				// sync not castle (rooks/king moved from default square)
-				CastleSync.set(current);
-				moveHistory.pieces[0] = 2;
+				castleFlags = CastleSync.set(castleFlags,current);
+				moveHistory.setFlags(2);
 			}
 		} else if (pieceNames[board[oldCol][oldRow]] == 'P' && oldCol != newCol && board[newCol][newRow] == -128) {
 			// handle en passant
-			moveHistory.pieces[0] = -128;
-			moveHistory.pieces[3] = board[newCol][oldRow];
+			moveHistory.setFlags(-128);
+			moveHistory.setCaptured(board[newCol][oldRow]);
 			pieces[board[newCol][oldRow]] = (byte) (64^pieces[board[newCol][oldRow]]);
+			toggleBitboards(board[newCol][oldRow],newCol<<3 | oldRow);
 			board[newCol][oldRow] = -128;
 		}
 		
+		// castling rights and en passant are re-keyed once the move is done
+		hash ^= Zobrist.castle(moveHistory.castle()) ^ Zobrist.enPassant(epSquare);
+		epSquare = -1;
+
 		// update pieces array
 		pieces[board[oldCol][oldRow]] = next;
 		
-		// update linked list of past moves
-		moveHistory.pieces[1] = board[oldCol][oldRow];
-		moveHistory.pieces[2] = current;
+		// update stack of past moves
+		moveHistory.setMoved(board[oldCol][oldRow],current);
 		
 		// check and handle if capture
 		if (board[newCol][newRow] != -128) {
-			moveHistory.pieces[0] = (byte) (64 | moveHistory.pieces[0]);
-			moveHistory.pieces[3] = board[newCol][newRow];
+			moveHistory.addFlags(64);
+			moveHistory.setCaptured(board[newCol][newRow]);
+			// a rook taken on its home square can no longer castle
+			if (pieceNames[board[newCol][newRow]] == 'R')
+				castleFlags = CastleSync.set(castleFlags,pieces[board[newCol][newRow]]);
 			pieces[board[newCol][newRow]] = (byte) (64^pieces[board[newCol][newRow]]);
+			toggleBitboards(board[newCol][newRow],newCol<<3 | newRow);
 		}
 			
-		// update board array
+		// update board array and bitboards
+		toggleBitboards(board[oldCol][oldRow],oldCol<<3 | oldRow);
+		toggleBitboards(board[oldCol][oldRow],newCol<<3 | newRow);
 		board[newCol][newRow] = board[oldCol][oldRow];
 		board[oldCol][oldRow] = -128;
 		
 		// check for and handle pawn promotion
 		if (pieceNames[board[newCol][newRow]] == 'P' && (newRow == 7 || newRow == 0)) {
-			char promo = player.choosePawnPromo();
+			if (promo == 0)
+				promo = player.choosePawnPromo();
+			toggleBitboards(board[newCol][newRow],newCol<<3 | newRow);
 			pieceNames[board[newCol][newRow]] = (byte) (0xFF&promo);
-			moveHistory.pieces[0] = (byte) (1 | moveHistory.pieces[0]);
+			toggleBitboards(board[newCol][newRow],newCol<<3 | newRow);
+			moveHistory.addFlags(1);
+		}
+
+		// a double step may be taken en passant by a pawn now beside it
+		int index = board[newCol][newRow];
+		if (pieceNames[index] == 'P' && Math.abs(newRow-oldRow) == 2) {
+			int passed = newCol<<3 | (oldRow+newRow)>>1;
+			int own = (index < 16) ? 0 : 1;
+			if ((Pawn.attacks(own,passed) & pieceBoards[1-own][PAWN]) != 0)
+				epSquare = passed;
+		}
+		hash ^= Zobrist.castle(castleFlags) ^ Zobrist.enPassant(epSquare);
+
+		// the other side moves next
+		Colour mover = (index < 16) ? Colour.BLACK : Colour.WHITE;
+		if (sideToMove == mover) {
+			sideToMove = (mover == Colour.BLACK) ? Colour.WHITE : Colour.BLACK;
+			hash ^= Zobrist.black();
 		}
 
 		return true;
 	}
 	
+	/**
+	 * Pack a move given as a byte pair, reading the captured piece and special
+	 * flags from the current position. The move is not validated.
+	 * 
+	 * @param current  an item from the pieces array
+	 * @param next  a new entry for the pieces array
+	 * @param promo  promotion type (QUEEN to KNIGHT) if a pawn reaches a back rank, else zero
+	 * @return the packed move (see Move)
+	 */
+	public int encodeMove (byte current, byte next, int promo) {
+		int from = 63&current;
+		int to = 63&next;
+		int index = board[from>>3][from&7];
+		byte target = board[to>>3][to&7];
+		int captured = 0;
+		int flags = 0;
+
+		if (target != -128) {
+			captured = target;
+			flags = Move.CAPTURE;
+		}
+		if (pieceNames[index] == 'P') {
+			if ((from>>3) != (to>>3) && target == -128) {
+				// en passant, the victim is beside the pawn
+				captured = board[to>>3][from&7];
+				flags = Move.CAPTURE | Move.EN_PASSANT;
+			} else if (Math.abs((to&7)-(from&7)) == 2) {
+				flags = Move.DOUBLE_STEP;
+			}
+		} else if (pieceNames[index] == 'K' && Math.abs((to>>3)-(from>>3)) == 2) {
+			flags = Move.CASTLE;
+		}
+
+		return Move.encode(from,to,index,captured,promo,flags);
+	}
+
+	/**
+	 * Write every mechanically possible move of one piece into a buffer as packed
+	 * moves. A pawn reaching a back rank produces one move per promotion piece.
+	 * Does not check check.
+	 * 
+	 * @param index  of pieces array, must be in play
+	 * @param moves  buffer to write into
+	 * @param offset  index of moves to write the first move to
+	 * @return offset plus the number of moves written
+	 */
+	public int generateMoves (int index, int[] moves, int offset) {
+		byte current = pieces[index];
+		int count = getPiece(index).getMoves(current,scratch,0);
+		boolean pawn = pieceNames[index] == 'P';
+		int size = offset;
+
+		for (int a = 0; a < count; a++) {
+			int row = 7&scratch[a];
+			if (pawn && (row == 0 || row == 7)) {
+				for (int promo = QUEEN; promo <= KNIGHT; promo++)
+					moves[size++] = encodeMove(current,scratch[a],promo);
+			} else {
+				moves[size++] = encodeMove(current,scratch[a],0);
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Write every mechanically possible move of one colour into a buffer as packed
+	 * moves. Does not check check.
+	 * 
+	 * @param c  the colour to move
+	 * @param moves  buffer to write into
+	 * @param offset  index of moves to write the first move to
+	 * @return offset plus the number of moves written
+	 */
+	public int generateMoves (Colour c, int[] moves, int offset) {
+		int low = (c == Colour.BLACK) ? 0 : 16;
+		int size = offset;
+		for (int i = low; i < low+16; i++) {
+			if ((64&pieces[i]) == 64)
+				size = generateMoves(i,moves,size);
+		}
+		return size;
+	}
+
+	/**
+	 * Write one kind of mechanically possible move of one colour into a buffer as
+	 * packed moves, so a search can put off generating quiet moves until it needs
+	 * them. Noisy moves are found from attack bitboards without listing quiet
+	 * moves at all. Does not check check.
+	 * 
+	 * @param c  the colour to move
+	 * @param moves  buffer to write into
+	 * @param offset  index of moves to write the first move to
+	 * @param kind  GEN_ALL, GEN_NOISY or GEN_QUIET
+	 * @return offset plus the number of moves written
+	 */
+	public int generateMoves (Colour c, int[] moves, int offset, int kind) {
+		if (kind == GEN_NOISY)
+			return generateNoisy(c,moves,offset);
+
+		int end = generateMoves(c,moves,offset);
+		if (kind == GEN_ALL)
+			return end;
+
+		int size = offset;
+		for (int a = offset; a < end; a++) {
+			if (!Move.isCapture(moves[a]) && Move.promotion(moves[a]) == 0)
+				moves[size++] = moves[a];
+		}
+		return size;
+	}
+
+	/**
+	 * Captures, en passant captures and promotions of one colour, straight from
+	 * the attack tables.
+	 * 
+	 * @param c  the colour to move
+	 * @param moves  buffer to write into
+	 * @param offset  index of moves to write the first move to
+	 * @return offset plus the number of moves written
+	 */
+	private int generateNoisy (Colour c, int[] moves, int offset) {
+		int own = (c == Colour.BLACK) ? 0 : 1;
+		int low = (c == Colour.BLACK) ? 0 : 16;
+		int backRank = (c == Colour.BLACK) ? 0 : 7;
+		int epRow = (c == Colour.BLACK) ? 2 : 5;
+		long enemy = colourBoards[1-own];
+		int size = offset;
+
+		for (int i = low; i < low+16; i++) {
+			byte current = pieces[i];
+			if ((64&current) == 0)
+				continue;
+			int from = 63&current;
+			long targets;
+
+			if (pieceNames[i] == 'P') {
+				long attacks = Pawn.attacks(own,from);
+				targets = attacks & enemy;
+				if (epSquare >= 0 && (7&epSquare) == epRow)
+					targets |= attacks & (1L << epSquare);
+				int ahead = (c == Colour.BLACK) ? from-1 : from+1;
+				if ((7&ahead) == backRank && (occupied & (1L << ahead)) == 0)
+					targets |= 1L << ahead;
+			} else {
+				targets = attacksFrom(typeOf(pieceNames[i]),from) & enemy;
+			}
+
+			while (targets != 0) {
+				int to = Long.numberOfTrailingZeros(targets);
+				byte next = (byte) (-64&current | to);
+				if (pieceNames[i] == 'P' && (7&to) == backRank) {
+					for (int promo = QUEEN; promo <= KNIGHT; promo++)
+						moves[size++] = encodeMove(current,next,promo);
+				} else {
+					moves[size++] = encodeMove(current,next,0);
+				}
+				targets &= targets-1;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @param type  KING to KNIGHT (pawns depend on colour, see Pawn#attacks())
+	 * @param square  where the piece stands
+	 * @return squares a piece of that type attacks, given the current occupancy
+	 */
+	private long attacksFrom (int type, int square) {
+		switch (type) {
+			case KING:
+				return King.attacks(square);
+			case QUEEN:
+				return Magic.queenAttacks(square,occupied);
+			case ROOK:
+				return Magic.rookAttacks(square,occupied);
+			case BISHOP:
+				return Magic.bishopAttacks(square,occupied);
+			case KNIGHT:
+				return Knight.attacks(square);
+		}
+		return 0L;
+	}
+
+	/**
+	 * Write every legal move of one colour into a buffer as packed moves. Pinned
+	 * pieces and check evasions are worked out once, up front, so no move is played
+	 * to find out whether it leaves the king in check. If the count is zero, the
+	 * side to move is mated (when #calcCheck() says so) or stalemated.
+	 * 
+	 * @param c  the colour to move
+	 * @param moves  buffer to write into, with room for MAX_MOVES from offset
+	 * @param offset  index of moves to write the first move to
+	 * @return offset plus the number of legal moves written
+	 */
+	public int generateLegalMoves (Colour c, int[] moves, int offset) {
+		return filterLegal(c,moves,offset,generateMoves(c,moves,offset));
+	}
+
+	/**
+	 * Legal moves of one kind (see #generateMoves(Colour,int[],int,int)).
+	 * 
+	 * @param c  the colour to move
+	 * @param moves  buffer to write into, with room for MAX_MOVES from offset
+	 * @param offset  index of moves to write the first move to
+	 * @param kind  GEN_ALL, GEN_NOISY or GEN_QUIET
+	 * @return offset plus the number of legal moves written
+	 */
+	public int generateLegalMoves (Colour c, int[] moves, int offset, int kind) {
+		return filterLegal(c,moves,offset,generateMoves(c,moves,offset,kind));
+	}
+
+	/**
+	 * Check a move that was not generated in this position, such as a killer move
+	 * or a move from a hash table, before playing it.
+	 * 
+	 * @param c  the colour to move
+	 * @param move  a packed move
+	 * @return true if move is exactly what #generateLegalMoves() would produce here
+	 */
+	public boolean isLegalMove (Colour c, int move) {
+		if (move == Move.NONE)
+			return false;
+		int index = Move.piece(move);
+		byte current = pieces[index];
+		if ((64&current) == 0 || (63&current) != Move.from(move) || (index < 16) != (c == Colour.BLACK))
+			return false;
+
+		byte next = (byte) (-64&current | Move.to(move));
+		if (!validateMove(c,current,next) || encodeMove(current,next,Move.promotion(move)) != move)
+			return false;
+		boolean promotes = pieceNames[index] == 'P' && ((7&next) == 0 || (7&next) == 7);
+		if (promotes != (Move.promotion(move) != 0))
+			return false;
+
+		int kingIndex = (c == Colour.BLACK) ? 0 : 16;
+		Colour o = (c == Colour.BLACK) ? Colour.WHITE : Colour.BLACK;
+		int kingSquare = 63&pieces[kingIndex];
+		return isLegal(move,kingIndex,kingSquare,o,attackers(kingSquare,o,occupied),pinnedPieces(kingSquare,c));
+	}
+
+	/**
+	 * Remove the moves that would leave c's own king attacked from a buffer of
+	 * mechanically possible moves, keeping the order of the rest.
+	 * 
+	 * @param c  the colour to move
+	 * @param moves  buffer of packed moves
+	 * @param offset  index of the first move
+	 * @param end  index after the last move
+	 * @return offset plus the number of legal moves kept
+	 */
+	public int filterLegal (Colour c, int[] moves, int offset, int end) {
+		int kingIndex = (c == Colour.BLACK) ? 0 : 16;
+		if ((64&pieces[kingIndex]) == 0)
+			return offset; // game is already over
+
+		Colour o = (c == Colour.BLACK) ? Colour.WHITE : Colour.BLACK;
+		int kingSquare = 63&pieces[kingIndex];
+		long checkers = attackers(kingSquare,o,occupied);
+		long pinned = pinnedPieces(kingSquare,c);
+
+		int size = offset;
+		for (int a = offset; a < end; a++) {
+			if (isLegal(moves[a],kingIndex,kingSquare,o,checkers,pinned))
+				moves[size++] = moves[a];
+		}
+		return size;
+	}
+
+	/**
+	 * Pieces of colour c which are the only piece between their king and an enemy
+	 * rook, bishop or queen on the same line. They may only move along that line.
+	 * 
+	 * @param kingSquare  c's king
+	 * @param c  the colour to find pinned pieces for
+	 * @return a bitboard of pinned pieces
+	 */
+	private long pinnedPieces (int kingSquare, Colour c) {
+		int own = (c == Colour.BLACK) ? 0 : 1;
+		long[] eb = pieceBoards[1-own];
+
+		// enemy sliders that would attack the king if c's pieces were not there
+		long snipers = (Magic.rookAttacks(kingSquare,colourBoards[1-own]) & (eb[ROOK] | eb[QUEEN]))
+			| (Magic.bishopAttacks(kingSquare,colourBoards[1-own]) & (eb[BISHOP] | eb[QUEEN]));
+		long pinned = 0L;
+		while (snipers != 0) {
+			long blockers = Magic.between(kingSquare,Long.numberOfTrailingZeros(snipers)) & occupied;
+			if (Long.bitCount(blockers) == 1)
+				pinned |= blockers & colourBoards[own];
+			snipers &= snipers-1;
+		}
+		return pinned;
+	}
+
+	/**
+	 * Decide whether a mechanically possible move leaves the mover's king safe.
+	 * 
+	 * @param move  a packed move of the king's colour
+	 * @param kingIndex  index of the mover's king (of pieces)
+	 * @param kingSquare  square of the mover's king
+	 * @param o  the opponent's colour
+	 * @param checkers  opponent pieces giving check
+	 * @param pinned  mover's pieces pinned to the king
+	 * @return true if the move is legal
+	 */
+	private boolean isLegal (int move, int kingIndex, int kingSquare, Colour o, long checkers, long pinned) {
+		int from = Move.from(move);
+		int to = Move.to(move);
+
+		if (Move.piece(move) == kingIndex) {
+			if (Move.isCastle(move)) {
+				// not out of, through, or into check
+				int passed = (from+to) >> 1;
+				return checkers == 0 && !isSquareAttacked(passed,o) && !isSquareAttacked(to,o);
+			}
+			// lift the king, so sliders see through its old square
+			return attackers(to,o,occupied ^ (1L << from)) == 0;
+		}
+
+		// in double check, only the king may move
+		if (Long.bitCount(checkers) > 1)
+			return false;
+
+		if (Move.isEnPassant(move)) {
+			// two pawns leave the row at once, so just test the resulting occupancy
+			long victim = 1L << (63&pieces[Move.captured(move)]);
+			long occ = (occupied ^ (1L << from) ^ victim) | (1L << to);
+			return (attackers(kingSquare,o,occ) & ~victim) == 0;
+		}
+
+		// in check, capture the checker or step in between
+		if (checkers != 0) {
+			int checker = Long.numberOfTrailingZeros(checkers);
+			if (to != checker && (Magic.between(kingSquare,checker) & (1L << to)) == 0)
+				return false;
+		}
+
+		// a pinned piece must stay on its pin
+		if ((pinned & (1L << from)) != 0 && (Magic.line(kingSquare,from) & (1L << to)) == 0)
+			return false;
+
+		return true;
+	}
+
 	/**
 	 * Used by Human to ensure the move does not put them in check. Automatically
 	 * reverts the move if it does. 
@@ -587,9 +1338,9 @@ public class Board {
 		Colour o = (c == Colour.BLACK) ? Colour.WHITE : Colour.BLACK;
 		if (calcCheck(o)) {
 			if (o == Colour.BLACK) {
-				moveHistory.pieces[0] = (byte) (32 | moveHistory.pieces[0]);
+				moveHistory.addFlags(32);
 			} else {
-				moveHistory.pieces[0] = (byte) (16 | moveHistory.pieces[0]);
+				moveHistory.addFlags(16);
 			}
 		}
 
@@ -601,9 +1352,9 @@ public class Board {
 			}
 			// flag was in check
 			if (c == Colour.BLACK) {
-				moveHistory.pieces[0] = (byte) (32 | moveHistory.pieces[0]);
+				moveHistory.addFlags(32);
 			} else {
-				moveHistory.pieces[0] = (byte) (16 | moveHistory.pieces[0]);
+				moveHistory.addFlags(16);
 			}
 		} else if (calcCheck(c)) {
 			undoMove();
@@ -639,58 +1390,22 @@ public class Board {
 	
 	/**
 	 * Calculates either blackInCheck or whiteInCheck. Must be called for each colour
-	 * at least once a turn.
+	 * at least once a turn. A captured king counts as being in check.
 	 * 
 	 * @param c  the player's colour.
 	 * @return true if player is in check, false if they are not.
 	 */
 	public boolean calcCheck (Colour c) {
-		boolean valid = false;
-		Colour o = (c == Colour.BLACK) ? Colour.WHITE : Colour.BLACK;
+		boolean valid;
 		
 		if (c == Colour.BLACK) {
-			if ((64&pieces[0]) == 0) { 
-				valid = true;
-			} else {
-				for (int i = 16; i < 32; i++) {
-					if (validateMove(o,pieces[i],pieces[0]) &&
-						boardMove(shell,pieces[i],pieces[0])) {
-						valid = true;
-						undoMove();
-						break;
-					}
-				}
-			}
+			valid = (64&pieces[0]) == 0 || isSquareAttacked(63&pieces[0],Colour.WHITE);
 			blackInCheck = valid;
 		} else {
-			if ((64&pieces[16]) == 0) {
-				valid = true;
-			} else {
-				for (int i = 0; i < 16; i++) {
-					if (validateMove(o,pieces[i],pieces[16]) &&
-						boardMove(shell,pieces[i],pieces[16])) {
-						valid = true;
-						undoMove();
-						break;
-					}
-				}
-			}
+			valid = (64&pieces[16]) == 0 || isSquareAttacked(63&pieces[16],Colour.BLACK);
 			whiteInCheck = valid;
 		}
 
 		return valid;
 	}
-	
-	/**
-	 * Helper class; used to handle pawn promotions when calculating check.
-	 */
-	private class Shell implements PlayerInterface {
-		char promoChar = 'N';
-		public Colour getColour() { return Colour.BLACK; }
-		public void makeMove () { }
-		public char choosePawnPromo () {
-			promoChar = (promoChar == 'N') ? 'Q' : 'N';
-			return promoChar;
-		}
-	}
 }
\ No newline at end of file
@@ -3,156 +3,104 @@ package Chess;
 /**
  * This class keeps track of King and Rook movements. It does not ultimately decide
  * whether a king can castle (does not account for check), but provides a quick,
- * early decision if pieces have moved.
+ * early decision if pieces have moved. The flags themselves belong to each Board
+ * (see Board#getCastleFlags()) and are restored from its undo records, so this
+ * class holds no state and any number of Boards can be in use at once.
  *
  * @author  Liam Marcassa
  */
 public class CastleSync {
 
-	// bits:
+	// flag bits:
 	// 0 = black king has moved
 	// 1 = white king has moved
 	// 2 = black kingside rook has moved
 	// 3 = black queenside rook has moved
 	// 4 = white kingside rook has moved
 	// 5 = white queenside rook has moved
-	private static byte canCastle = 0;
 
-	// timesMoved is not actually the number of moves a piece has made,
-	// but the number of times it has moved away from its default location
-	private static int[] timesMoved = new int[6]; 
-	
-	/**
-	 * Increments an element of timesMoved and ensures canCastle bit is set.
-	 * Called every time a rook or king moves away from their default starting
-	 * square.
-	 * 
-	 * @param oldPos  is one of six default starting pieces
-	 */
-	public static void set (byte oldPos) {
-		switch (oldPos) {
-			case -25:
-				// black king
-				timesMoved[0] = timesMoved[0] + 1;
-				canCastle = (byte) (1|canCastle);
-				break;
-			case 96:
-				// white king
-				timesMoved[1] = timesMoved[1] + 1;
-				canCastle = (byte) (2|canCastle);
-				break;
-			case -1:
-				// black kingside rook
-				timesMoved[2] = timesMoved[2] + 1;
-				canCastle = (byte) (4|canCastle);
-				break;
-			case -57:
-				// black queenside rook
-				timesMoved[3] = timesMoved[3] + 1;
-				canCastle = (byte) (8|canCastle);
-				break;
-			case 120:
-				// white kingside rook
-				timesMoved[4] = timesMoved[4] + 1;
-				canCastle = (byte) (16|canCastle);
-				break;
-			case 64:
-				// white queenside rook
-				timesMoved[5] = timesMoved[5] + 1;
-				canCastle = (byte) (32|canCastle);
-				break;
-		}
-	}
-	
+	/** Static helpers only */
+	private CastleSync () { }
+
 	/**
-	 * Called by Board#undoMove(); decrements timesMoved and resets
-	 * bit if timesMoves[x] == 0.
+	 * Called every time a rook or king moves away from (or a rook is captured
+	 * on) its default starting square.
 	 * 
-	 * @param oldPos  one of six default starting pieces
+	 * @param flags  the current castling flags
+	 * @param oldPos  the piece, if it is one of six default starting pieces
+	 *                the matching bit is set
+	 * @return the new castling flags
 	 */
-	public static void reset (byte oldPos) {
+	public static byte set (byte flags, byte oldPos) {
 		switch (oldPos) {
 			case -25:
 				// black king
-				timesMoved[0] = timesMoved[0] - 1;
-				if (timesMoved[0] == 0)
-					canCastle = (byte) (1^canCastle);
-				break;
+				return (byte) (1|flags);
 			case 96:
 				// white king
-				timesMoved[1] = timesMoved[1] - 1;
-				if (timesMoved[1] == 0)
-					canCastle = (byte) (2^canCastle);
-				break;
+				return (byte) (2|flags);
 			case -1:
 				// black kingside rook
-				timesMoved[2] = timesMoved[2] - 1;
-				if (timesMoved[2] == 0)
-					canCastle = (byte) (4^canCastle);
-				break;
+				return (byte) (4|flags);
 			case -57:
 				// black queenside rook
-				timesMoved[3] = timesMoved[3] - 1;
-				if (timesMoved[3] == 0)
-					canCastle = (byte) (8^canCastle);
-				break;
+				return (byte) (8|flags);
 			case 120:
 				// white kingside rook
-				timesMoved[4] = timesMoved[4] - 1;
-				if (timesMoved[4] == 0)
-					canCastle = (byte) (16^canCastle);
-				break;
+				return (byte) (16|flags);
 			case 64:
 				// white queenside rook
-				timesMoved[5] = timesMoved[5] - 1;
-				if (timesMoved[5] == 0)
-					canCastle = (byte) (32^canCastle);
-				break;
+				return (byte) (32|flags);
 		}
-	}
-
-	/**
-	 * Used by Computer to reward/punish castling moves.
-	 * 
-	 * @return canCastle
-	 */
-	public static byte getFlags () {
-		return canCastle;
+		return flags;
 	}
 	
 	/**
 	 * Allows the program to quickly check if a king cannot
 	 * castle in a certain direction (kingside or queenside).
 	 * 
-	 * @param
+	 * @param flags  the current castling flags
+	 * @param newKing  where the king wants to be
 	 * @return false if either the king or rook has moved, true if not. True
 	 * 		   does not imply the castling is valid, check still has to be checked.
 	 */
-	public static boolean canCastle (byte newKing) {
+	public static boolean canCastle (byte flags, byte newKing) {
 		switch (newKing) {
 			case -9:
 				// black kingside
-				if ((5&canCastle) == 0)
-					return true;
-				break;
+				return (5&flags) == 0;
 			case -41:
 				// black queenside
-				if ((9&canCastle) == 0)
-					return true;
-				break;
+				return (9&flags) == 0;
 			case 112:
 				// white kingside
-				if ((18&canCastle) == 0)
-					return true;
-				break;
+				return (18&flags) == 0;
 			case 80:
 				// white queenside
-				if ((34&canCastle) == 0)
-					return true;
-				break;
-			default:
-				return false;
+				return (34&flags) == 0;
 		}
 		return false;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Castling flags record which pieces have moved, so different flags can
+	 * leave the same rights (once a king has moved, its rooks no longer
+	 * matter). Used where only the rights count, such as Zobrist keys.
+	 *
+	 * @param flags  the current castling flags
+	 * @return bits: 0 = black kingside, 1 = black queenside, 2 = white kingside,
+	 *         3 = white queenside, set if that castle is still possible
+	 */
+	public static int rights (byte flags) {
+		int out = 0;
+		if ((5&flags) == 0)
+			out |= 1;
+		if ((9&flags) == 0)
+			out |= 2;
+		if ((18&flags) == 0)
+			out |= 4;
+		if ((34&flags) == 0)
+			out |= 8;
+		return out;
+	}
+}
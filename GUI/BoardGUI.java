@@ -1,6 +1,7 @@
 package Chess.GUI;
 
 import Chess.*;
+import Chess.Players.TranspositionTable;
 
 import javax.swing.*;
 import java.awt.*;
@@ -104,12 +105,18 @@ public class BoardGUI {
 		JButton resetButton = new JButton("Reset Board");
 		JLabel depthLabel = new JLabel("Depth");
 		JTextField depthField = new JTextField("4",1);
+		JLabel threadsLabel = new JLabel("Threads");
+		JTextField threadsField = new JTextField("1",1);
+		JLabel hashLabel = new JLabel("Hash (MB)");
+		JTextField hashField = new JTextField(Integer.toString(TranspositionTable.DEFAULT_MB),1);
+		JLabel timeLabel = new JLabel("Time/move (ms, 0 = use depth)");
+		JTextField timeField = new JTextField("0",1);
 		JCheckBox firstColourCheck = new JCheckBox("white to move");
 		JCheckBox firstPlayerCheck = new JCheckBox("human to move");
 		JCheckBox evalFuncCheck = new JCheckBox("use simple eval");
 		
 		mainFrame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
-		mainFrame.setSize(450,200);
+		mainFrame.setSize(480,320);
 		mainFrame.setLayout(new FlowLayout());
 
 		table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
@@ -144,6 +151,12 @@ public class BoardGUI {
 		togglesPanel.add(resetButton);
 		togglesPanel.add(depthLabel);
 		togglesPanel.add(depthField);
+		togglesPanel.add(threadsLabel);
+		togglesPanel.add(threadsField);
+		togglesPanel.add(hashLabel);
+		togglesPanel.add(hashField);
+		togglesPanel.add(timeLabel);
+		togglesPanel.add(timeField);
 		togglesPanel.add(firstColourCheck);
 		togglesPanel.add(firstPlayerCheck);
 		togglesPanel.add(evalFuncCheck);
@@ -180,7 +193,7 @@ public class BoardGUI {
 		});
 
 		doneButton.addActionListener(new DoneButtonActionListener(
-			flag,options,table,depthField,firstColourCheck,firstPlayerCheck,evalFuncCheck,mainFrame));
+			flag,options,table,depthField,threadsField,hashField,timeField,firstColourCheck,firstPlayerCheck,evalFuncCheck,mainFrame));
 
 		mainFrame.setVisible(true);
 	}
@@ -193,7 +206,7 @@ public class BoardGUI {
 		private AtomicBoolean flag;
 		private BoardOptions options;
 		private JTable table;
-		private JTextField depthField;
+		private JTextField depthField, threadsField, hashField, timeField;
 		private JCheckBox firstColourCheck, firstPlayerCheck, evalFuncCheck;
 		private JFrame mainFrame;
 		
@@ -205,19 +218,25 @@ public class BoardGUI {
 		 * @param  options          to pass data back to main thread
 		 * @param  table            the board configuration
 		 * @param  depthField       maximum depth of the Computer's search tree
+		 * @param  threadsField     number of threads the Computer searches with
+		 * @param  hashField        size of the Computer's transposition table, in megabytes
+		 * @param  timeField        the Computer's time per move in milliseconds, zero to search to depth
 		 * @param  firstColourCheck which colour plays first
 		 * @param  firstPlayerCheck which player plays first
 		 * @param  evalFuncCheck    if true, Computer uses simple evaluation function, otherwise uses complex
 		 * @param  mainFrame        the overall GUI, so it can be disposed 
 		 */
 		public DoneButtonActionListener(AtomicBoolean flag, BoardOptions options,
-			JTable table, JTextField depthField, JCheckBox firstColourCheck,
-			JCheckBox firstPlayerCheck, JCheckBox evalFuncCheck, JFrame mainFrame) {
+			JTable table, JTextField depthField, JTextField threadsField, JTextField hashField, JTextField timeField,
+			JCheckBox firstColourCheck, JCheckBox firstPlayerCheck, JCheckBox evalFuncCheck, JFrame mainFrame) {
 
 			this.flag = flag;
 			this.options = options;
 			this.table = table;
 			this.depthField = depthField;
+			this.threadsField = threadsField;
+			this.hashField = hashField;
+			this.timeField = timeField;
 			this.firstColourCheck = firstColourCheck;
 			this.firstPlayerCheck = firstPlayerCheck;
 			this.evalFuncCheck = evalFuncCheck;
@@ -247,10 +266,49 @@ public class BoardGUI {
 	    		System.out.println("Error: unable to parse depth, using default of 4");
 	    	}
 
+	    	int threads = 1;
+	    	try {
+	    		threads = Integer.parseInt(threadsField.getText());
+	    		int cores = Runtime.getRuntime().availableProcessors();
+	    		if (threads > cores) {
+	    			System.out.println("maximum threads = " + cores);
+	    			threads = cores;
+	    		} else if (threads < 1) {
+	    			System.out.println("minimum threads = 1");
+	    			threads = 1;
+	    		}
+	    	} catch (java.lang.NumberFormatException except) {
+	    		System.out.println("Error: unable to parse threads, using default of 1");
+	    	}
+
+	    	int hashMB = TranspositionTable.DEFAULT_MB;
+	    	try {
+	    		hashMB = Integer.parseInt(hashField.getText());
+	    		if (hashMB > 4096) {
+	    			System.out.println("maximum hash = 4096 MB");
+	    			hashMB = 4096;
+	    		} else if (hashMB < 1) {
+	    			System.out.println("minimum hash = 1 MB");
+	    			hashMB = 1;
+	    		}
+	    	} catch (java.lang.NumberFormatException except) {
+	    		System.out.println("Error: unable to parse hash size, using default of " + TranspositionTable.DEFAULT_MB);
+	    	}
+
+	    	int moveTime = 0;
+	    	try {
+	    		moveTime = Math.max(0,Integer.parseInt(timeField.getText()));
+	    	} catch (java.lang.NumberFormatException except) {
+	    		System.out.println("Error: unable to parse time per move, searching to depth");
+	    	}
+
 	    	options.firstColour = (firstColourCheck.isSelected()) ? Colour.WHITE : Colour.BLACK;
 	    	options.humanFirst = firstPlayerCheck.isSelected();
 	    	options.simpleEval = evalFuncCheck.isSelected();
 	    	options.depth = depth;
+	    	options.threads = threads;
+	    	options.hashMB = hashMB;
+	    	options.moveTime = moveTime;
 
 	    	for (int i = 0; i < 8; i++) {
 				for (int j = 0; j < 8; j++) {
@@ -1,6 +1,7 @@
 package Chess.GUI;
 
 import Chess.*;
+import Chess.Players.TranspositionTable;
 
 /**
  * Container class for communication between the GUI (where
@@ -15,9 +16,14 @@ public class BoardOptions {
 	public boolean humanFirst; // if true, Human makes the first move, otherwise Computer does
 	public boolean simpleEval; // if true, Computer uses simple (faster) evaluation function
 	public int depth; 		   // maximum depth that the Computer will search to (except in the endgame)
+	public int threads; 	   // number of threads the Computer searches with
+	public int hashMB; 		   // size of the Computer's transposition table in megabytes
+	public int moveTime; 	   // milliseconds the Computer may think per move, zero to search to depth instead
 	public char[][] board;     // the intial board configuration
 
 	public BoardOptions () {
 		board = new char[8][8];
+		hashMB = TranspositionTable.DEFAULT_MB;
+		threads = 1;
 	}
 }
\ No newline at end of file
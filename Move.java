@@ -0,0 +1,118 @@
+package Chess;
+
+/**
+ * Packs a complete move into a single int, so that moves can be stored in plain
+ * arrays, compared, ordered and hashed without allocating. Each promotion choice
+ * is a distinct move. Moves are created by Board#encodeMove(byte,byte,int) and
+ * Board#generateMoves(), and played with Board#boardMove(int).
+ *
+ * @author  Liam Marcassa
+ */
+public final class Move {
+
+	// bits:
+	// 0-5   = from square (col<<3 | row, as in the low six bits of Board.pieces[x])
+	// 6-11  = to square
+	// 12-16 = index of the moving piece (of Board.pieces)
+	// 17-21 = index of the captured piece (only meaningful if CAPTURE is set)
+	// 22-24 = promotion piece type (Board.QUEEN to Board.KNIGHT), zero if none
+	// 25    = captures a piece (including en passant)
+	// 26    = en passant
+	// 27    = castle (king moves two files)
+	// 28    = pawn moves two rows
+	//
+	// Bit 31 is never set, and a real move never has all bits zero (from != to),
+	// so zero can be used to mean "no move".
+	public static final int NONE = 0;
+	public static final int CAPTURE = 1<<25;
+	public static final int EN_PASSANT = 1<<26;
+	public static final int CASTLE = 1<<27;
+	public static final int DOUBLE_STEP = 1<<28;
+
+	// Used to translate a promotion type back to a pieceNames code
+	private static final String NAMES = "KQRBNP";
+
+	/** Static helpers only */
+	private Move () { }
+
+	/**
+	 * @param from      from square
+	 * @param to        to square
+	 * @param piece     index of the moving piece
+	 * @param captured  index of the captured piece, ignored unless flags has CAPTURE
+	 * @param promo     promotion type (Board.QUEEN to Board.KNIGHT), or zero
+	 * @param flags     any of CAPTURE, EN_PASSANT, CASTLE and DOUBLE_STEP
+	 * @return the packed move
+	 */
+	public static int encode (int from, int to, int piece, int captured, int promo, int flags) {
+		return from | to<<6 | piece<<12 | captured<<17 | promo<<22 | flags;
+	}
+
+	/** @return the square the piece leaves */
+	public static int from (int move) {
+		return 63&move;
+	}
+
+	/** @return the square the piece lands on */
+	public static int to (int move) {
+		return 63&(move>>6);
+	}
+
+	/** @return index (of Board.pieces) of the moving piece */
+	public static int piece (int move) {
+		return 31&(move>>12);
+	}
+
+	/** @return index (of Board.pieces) of the captured piece, if isCapture(move) */
+	public static int captured (int move) {
+		return 31&(move>>17);
+	}
+
+	/** @return promotion type (Board.QUEEN to Board.KNIGHT), zero if not a promotion */
+	public static int promotion (int move) {
+		return 7&(move>>22);
+	}
+
+	/** @return promotion as a pieceNames code (Q,R,B,N), zero if not a promotion */
+	public static char promotionChar (int move) {
+		int promo = promotion(move);
+		return (promo == 0) ? 0 : NAMES.charAt(promo);
+	}
+
+	/** @return true if the move captures a piece (including en passant) */
+	public static boolean isCapture (int move) {
+		return (CAPTURE&move) != 0;
+	}
+
+	/** @return true if the move is an en passant capture */
+	public static boolean isEnPassant (int move) {
+		return (EN_PASSANT&move) != 0;
+	}
+
+	/** @return true if the move is a castle */
+	public static boolean isCastle (int move) {
+		return (CASTLE&move) != 0;
+	}
+
+	/** @return true if the move is a pawn moving two rows */
+	public static boolean isDoubleStep (int move) {
+		return (DOUBLE_STEP&move) != 0;
+	}
+
+	/**
+	 * Coordinate notation, as printed by Computer and written by Referee.
+	 *
+	 * @return e.g. "E2-E4", or "A7-A8Q" for a promotion
+	 */
+	public static String toString (int move) {
+		StringBuilder sb = new StringBuilder(6);
+		sb.append((char) ((from(move)>>3)+65));
+		sb.append((char) ((7&from(move))+49));
+		sb.append('-');
+		sb.append((char) ((to(move)>>3)+65));
+		sb.append((char) ((7&to(move))+49));
+		if (promotion(move) != 0)
+			sb.append(promotionChar(move));
+		return sb.toString();
+	}
+}
@@ -0,0 +1,173 @@
+package Chess;
+
+import java.util.Arrays;
+
+/**
+ * Used to track move history, this class is a stack of undo records indexed
+ * by ply. Records are kept in parallel primitive arrays which are allocated
+ * once and only grow (doubling) when a game outlasts them, so making and
+ * unmaking a move never allocates.
+ *
+ * @author  Liam Marcassa
+ */
+public class MoveHistory {
+
+	// flags bits:
+	// 7 = en passant
+	// 6 = captured a piece non passant
+	// 5 = black was in check
+	// 4 = white was in check
+	// 3 = kingside castle
+	// 2 = queenside castle
+	// 1 = sync not castle (rook/king moved from default square)
+	// 0 = piece used to be a pawn
+	//
+	// index bits:
+	// 7-5 = unused
+	// 4-0 = index (of Board.pieces)
+	//
+	// old bits:
+	// 7-0 = old piece (what Board.pieces[x] used to be)
+	//
+	// captured bits:
+	// 7-5 = unused
+	// 4-0 = index of captured piece (of Board.pieces)
+	//
+	// castle bits:
+	// 7-0 = Board's castling flags before the move (see CastleSync)
+	//
+	// ep bits:
+	// 7-0 = Board's en passant square before the move, -1 if none
+	//
+	// hash = Board's Zobrist key before the move
+	private byte[] flags, index, old, captured, castle, ep;
+	private long[] hash;
+	private int ply; // number of records on the stack
+
+	/** Room for a long game before the arrays need to grow */
+	private static final int INITIAL_SIZE = 256;
+
+	/** Constructor, creates an empty stack */
+	public MoveHistory () {
+		flags = new byte[INITIAL_SIZE];
+		index = new byte[INITIAL_SIZE];
+		old = new byte[INITIAL_SIZE];
+		captured = new byte[INITIAL_SIZE];
+		castle = new byte[INITIAL_SIZE];
+		ep = new byte[INITIAL_SIZE];
+		hash = new long[INITIAL_SIZE];
+		ply = 0;
+	}
+
+	/** Start a new, cleared record on top of the stack. */
+	public void push () {
+		if (ply == flags.length) {
+			flags = Arrays.copyOf(flags,2*ply);
+			index = Arrays.copyOf(index,2*ply);
+			old = Arrays.copyOf(old,2*ply);
+			captured = Arrays.copyOf(captured,2*ply);
+			castle = Arrays.copyOf(castle,2*ply);
+			ep = Arrays.copyOf(ep,2*ply);
+			hash = Arrays.copyOf(hash,2*ply);
+		}
+		flags[ply] = 0;
+		index[ply] = 0;
+		old[ply] = 0;
+		captured[ply] = 0;
+		castle[ply] = 0;
+		ep[ply] = -1;
+		hash[ply] = 0L;
+		ply++;
+	}
+
+	/** Discard the top record. */
+	public void pop () {
+		ply--;
+	}
+
+	/** @return true if no moves have been recorded */
+	public boolean isEmpty () {
+		return ply == 0;
+	}
+
+	/** @return number of records on the stack */
+	public int size () {
+		return ply;
+	}
+
+	/** @return flags byte of the top record */
+	public byte flags () {
+		return flags[ply-1];
+	}
+
+	/** @param f  replaces the flags byte of the top record */
+	public void setFlags (int f) {
+		flags[ply-1] = (byte) f;
+	}
+
+	/** @param f  bits to set in the flags byte of the top record */
+	public void addFlags (int f) {
+		flags[ply-1] = (byte) (f | flags[ply-1]);
+	}
+
+	/** @return index (of Board.pieces) of the piece moved by the top record */
+	public byte index () {
+		return index[ply-1];
+	}
+
+	/** @return what Board.pieces[index()] was before the top record */
+	public byte old () {
+		return old[ply-1];
+	}
+
+	/**
+	 * Record which piece moved, and from where.
+	 *
+	 * @param i  index (of Board.pieces)
+	 * @param o  what Board.pieces[i] was before the move
+	 */
+	public void setMoved (byte i, byte o) {
+		index[ply-1] = i;
+		old[ply-1] = o;
+	}
+
+	/** @return index (of Board.pieces) of the piece captured by the top record */
+	public byte captured () {
+		return captured[ply-1];
+	}
+
+	/** @param c  index (of Board.pieces) of the captured piece */
+	public void setCaptured (byte c) {
+		captured[ply-1] = c;
+	}
+
+	/** @return Board's castling flags from before the top record */
+	public byte castle () {
+		return castle[ply-1];
+	}
+
+	/** @param c  Board's castling flags from before the move */
+	public void setCastle (byte c) {
+		castle[ply-1] = c;
+	}
+
+	/** @return Board's en passant square from before the top record, -1 if none */
+	public byte enPassant () {
+		return ep[ply-1];
+	}
+
+	/** @param e  Board's en passant square from before the move, -1 if none */
+	public void setEnPassant (int e) {
+		ep[ply-1] = (byte) e;
+	}
+
+	/** @return Board's Zobrist key from before the top record */
+	public long hash () {
+		return hash[ply-1];
+	}
+
+	/** @param h  Board's Zobrist key from before the move */
+	public void setHash (long h) {
+		hash[ply-1] = h;
+	}
+}
@@ -0,0 +1,290 @@
+package Chess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth ("perft"), the
+ * standard way of checking a move generator. The counts for well known positions
+ * are published, so any difference points at a bug; and the nodes per second are
+ * a measure of move generation plus make/unmake speed.
+ *
+ * Usage:
+ *   java Chess.Perft suite [maxDepth] [options]
+ *   java Chess.Perft depth [FEN] [options]
+ * options:
+ *   -divide     print the count below each root move
+ *   -hash MB    cache subtree counts in a table of that size
+ *   -threads N  split the root moves across N threads (default 1)
+ *
+ * @author  Liam Marcassa
+ */
+public class Perft {
+
+	public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	// Reference positions and their node counts from depth 1 upwards, as published
+	// on the Chess Programming Wiki ("Perft Results").
+	private static final String[] SUITE = {
+		START,
+		"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+		"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+		"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+		"r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1",
+		"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+		"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"
+	};
+	private static final long[][] SUITE_COUNTS = {
+		{20, 400, 8902, 197281, 4865609, 119060324},
+		{48, 2039, 97862, 4085603, 193690690},
+		{14, 191, 2812, 43238, 674624, 11030083},
+		{6, 264, 9467, 422333, 15833292},
+		{6, 264, 9467, 422333, 15833292},
+		{44, 1486, 62379, 2103487, 89941194},
+		{46, 2079, 89890, 3894594, 164075551}
+	};
+
+	private Board b;
+	private int[][] moves; // one buffer per remaining depth
+	private Cache cache;   // may be null
+
+	/**
+	 * @param b  the Board to count on, which is returned to its position afterwards
+	 * @param maxDepth  deepest count this Perft will be asked for
+	 * @param cache  shared subtree counts, or null
+	 */
+	public Perft (Board b, int maxDepth, Cache cache) {
+		this.b = b;
+		this.cache = cache;
+		moves = new int[maxDepth+1][Board.MAX_MOVES];
+	}
+
+	/**
+	 * Count leaf nodes. At depth one the legal moves are counted, not played.
+	 *
+	 * @param depth  plies to look ahead, at least one
+	 * @return number of leaf nodes
+	 */
+	public long count (int depth) {
+		Colour c = b.getSideToMove();
+		int[] list = moves[depth];
+		if (depth == 1)
+			return b.generateLegalMoves(c,list,0);
+
+		// a hit needs no moves, so look before generating them
+		long key = 0L;
+		if (cache != null) {
+			key = b.getHash();
+			long hit = cache.probe(key,depth);
+			if (hit >= 0)
+				return hit;
+		}
+
+		int size = b.generateLegalMoves(c,list,0);
+		long nodes = 0;
+		for (int a = 0; a < size; a++) {
+			b.boardMove(list[a]);
+			nodes += count(depth-1);
+			b.undoMove();
+		}
+
+		if (cache != null)
+			cache.store(key,depth,nodes);
+		return nodes;
+	}
+
+	/**
+	 * Count leaf nodes below each root move.
+	 *
+	 * @param depth  plies to look ahead, at least one
+	 * @param threads  number of threads to split the root moves across
+	 * @param out  receives one line per root move ("E2-E4: 20"), or null
+	 * @return total number of leaf nodes
+	 */
+	public long divide (int depth, int threads, List<String> out) {
+		Colour c = b.getSideToMove();
+		int[] list = new int[Board.MAX_MOVES];
+		int size = b.generateLegalMoves(c,list,0);
+
+		List<RootTask> tasks = new ArrayList<RootTask>();
+		for (int a = 0; a < size; a++) {
+			b.boardMove(list[a]);
+			tasks.add(new RootTask(list[a],b.getPosition(),depth-1));
+			b.undoMove();
+		}
+
+		if (threads > 1) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			for (RootTask t : tasks)
+				pool.execute(t);
+			for (RootTask t : tasks)
+				t.join();
+			pool.shutdown();
+		} else {
+			for (RootTask t : tasks)
+				t.invoke();
+		}
+
+		long nodes = 0;
+		for (RootTask t : tasks) {
+			long n = t.join();
+			nodes += n;
+			if (out != null)
+				out.add(Move.toString(t.move) + ": " + n);
+		}
+		return nodes;
+	}
+
+	/**
+	 * Counts the subtree below one root move on a Board of its own, so tasks can
+	 * run on any thread.
+	 */
+	private class RootTask extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+		int move, depth;
+		Position position;
+
+		RootTask (int move, Position position, int depth) {
+			this.move = move;
+			this.position = position;
+			this.depth = depth;
+		}
+
+		@Override
+		protected Long compute () {
+			if (depth == 0)
+				return 1L;
+			return new Perft(new Board(position),depth,cache).count(depth);
+		}
+	}
+
+	/**
+	 * A table of subtree counts, indexed by Zobrist key and depth. It is shared by
+	 * every thread without locks: each entry keeps its key XORed with its data,
+	 * so an entry torn by two threads writing at once fails the key check and is
+	 * treated as a miss.
+	 */
+	public static class Cache {
+		private long[] keys, data;
+		private int mask;
+
+		/** @param megabytes  approximate table size, at most 16 GB are used */
+		public Cache (int megabytes) {
+			long wanted = (long) megabytes*(1<<20)/16;
+			int entries = Integer.highestOneBit((int) Math.max(1,Math.min(wanted,1<<30)));
+			keys = new long[entries];
+			data = new long[entries];
+			mask = entries-1;
+		}
+
+		/**
+		 * @param key  Zobrist key of the position
+		 * @param depth  remaining depth
+		 * @return the stored count, or -1 if there is none
+		 */
+		long probe (long key, int depth) {
+			long k = key ^ depth;
+			int i = (int) k & mask;
+			long d = data[i];
+			if ((keys[i] ^ d) == k && (255&d) == depth)
+				return d >>> 8;
+			return -1;
+		}
+
+		/**
+		 * @param key  Zobrist key of the position
+		 * @param depth  remaining depth
+		 * @param nodes  leaf count below the position
+		 */
+		void store (long key, int depth, long nodes) {
+			long k = key ^ depth;
+			int i = (int) k & mask;
+			long d = nodes << 8 | depth;
+			data[i] = d;
+			keys[i] = k ^ d;
+		}
+	}
+
+	/**
+	 * Run one perft and print the result.
+	 *
+	 * @param fen  the position
+	 * @param depth  plies to look ahead
+	 * @param divide  print the count below each root move
+	 * @param hashMB  cache size, zero for none
+	 * @param threads  number of threads
+	 * @return the node count
+	 */
+	private static long run (String fen, int depth, boolean divide, int hashMB, int threads) {
+		Board board = new Board(Position.fromFEN(fen));
+		Cache cache = (hashMB > 0) ? new Cache(hashMB) : null;
+		Perft perft = new Perft(board,depth,cache);
+		List<String> lines = divide ? new ArrayList<String>() : null;
+
+		long start = System.nanoTime();
+		long nodes = perft.divide(depth,threads,lines);
+		long elapsed = System.nanoTime()-start;
+
+		if (divide) {
+			for (String line : lines)
+				System.out.println(line);
+		}
+		long ms = Math.max(1,elapsed/1000000);
+		System.out.println("depth " + depth + ": " + nodes + " nodes, " + ms + " ms, " + (nodes*1000/ms) + " nps");
+		return nodes;
+	}
+
+	/**
+	 * Entry point, see the class description for arguments.
+	 *
+	 * @param args  command line arguments
+	 */
+	public static void main (String[] args) {
+		if (args.length == 0) {
+			System.out.println("usage: java Chess.Perft suite [maxDepth] [-divide] [-hash MB] [-threads N]");
+			System.out.println("       java Chess.Perft depth [FEN] [-divide] [-hash MB] [-threads N]");
+			return;
+		}
+
+		boolean divide = false;
+		int hashMB = 0, threads = 1;
+		List<String> rest = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-divide")) {
+				divide = true;
+			} else if (args[i].equals("-hash") && i+1 < args.length) {
+				hashMB = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-threads") && i+1 < args.length) {
+				threads = Integer.parseInt(args[++i]);
+			} else {
+				rest.add(args[i]);
+			}
+		}
+
+		if (rest.get(0).equals("suite")) {
+			int maxDepth = (rest.size() > 1) ? Integer.parseInt(rest.get(1)) : 4;
+			int failed = 0;
+			for (int p = 0; p < SUITE.length; p++) {
+				System.out.println(SUITE[p]);
+				for (int d = 1; d <= Math.min(maxDepth,SUITE_COUNTS[p].length); d++) {
+					long nodes = run(SUITE[p],d,divide,hashMB,threads);
+					if (nodes != SUITE_COUNTS[p][d-1]) {
+						System.out.println("  FAIL, expected " + SUITE_COUNTS[p][d-1]);
+						failed++;
+					}
+				}
+			}
+			System.out.println((failed == 0) ? "all passed" : failed + " failed");
+			if (failed != 0)
+				System.exit(1);
+		} else {
+			int depth = Integer.parseInt(rest.get(0));
+			StringBuilder fen = new StringBuilder();
+			for (int i = 1; i < rest.size(); i++)
+				fen.append(rest.get(i)).append(' ');
+			run((fen.length() == 0) ? START : fen.toString(),depth,divide,hashMB,threads);
+		}
+	}
+}
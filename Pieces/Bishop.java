@@ -40,39 +40,16 @@ public class Bishop implements PieceInterface {
 	 * @return true if move is valid, false if not
 	 */
 	public boolean validateMove (byte current, byte next) {
-		int diffCol = ((56&next)>>3)-((56&current)>>3);
-		int diffRow = (7&next)-(7&current);
-		
-		if (Math.abs(diffCol) != Math.abs(diffRow))
-			return false;
-		
-		int vCol = (diffCol == 0) ? 0 : diffCol / Math.abs(diffCol);
-		int vRow = (diffRow == 0) ? 0 : diffRow / Math.abs(diffRow);
-		int x = ((56&current)>>3) + vCol;
-		int y = (7&current) + vRow;
-		while (x != ((56&next)>>3) || y != (7&next)) {
-			if (b.board[x][y] != -128)
-				return false;
-			x += vCol;
-			y += vRow;
-		}
-		
-		// can capture, but not same colour
-		if ((-128&current) == -128) {
-			if (b.board[x][y] != -128 && b.board[x][y] < 16)
-				return false;
-		} else {
-			if (b.board[x][y] > 15)
-				return false;
-		}
-		
-		return true;
+		int own = ((-128&current) == -128) ? 0 : 1;
+		long targets = Magic.bishopAttacks(63&current,b.occupied) & ~b.colourBoards[own];
+		return (targets & (1L << (63&next))) != 0;
 	}
 	
 	/**
 	 * Returns every valid mechanical move possible from the current position.
 	 * Does not check check. Used by Board to calculate check and by Computer
-	 * to generate branches.
+	 * to generate branches. The attacked squares come from a single lookup in
+	 * the Magic tables.
 	 * 
 	 * @param current  the current piece
 	 * @return an array of valid moves, starting from index zero. Not all values are
@@ -80,78 +57,30 @@ public class Bishop implements PieceInterface {
 	 *         assumed to be zero also. The last index is guaranteed to be zero.
 	 */
 	public byte[] getMoves (byte current) {
-		byte col = (byte)((current&56)>>3);
-		byte row = (byte)(current&7);
-		
-		// maximum possible number of moves is 7+6=13
-		byte[] candidates = new byte[14];
-		int size = 0;
-		
-		int x = col+1;
-		int y = row+1;
-		
-		if ((-128&current) == -128) { // piece is black
-			// move up and to the right
-			while (x < 8 && y < 8 && b.board[x][y] == -128)
-				candidates[size++] = (byte) (-64&current | (x++)<<3 | y++);
-			if (x < 8 && y < 8 && b.board[x][y] > 15)
-				candidates[size++] = (byte) (-64&current | x<<3 | y);
-			
-			// move down and to the right
-			x = col+1;
-			y = row-1;
-			while (x < 8 && y >= 0 && b.board[x][y] == -128) 
-				candidates[size++] = (byte) (-64&current | (x++)<<3 | y--);
-			if (x < 8 && y >= 0 && b.board[x][y] > 15)
-				candidates[size++] = (byte) (-64&current | x<<3 | y);
-			
-			// move up and to the left	
-			x = col-1;
-			y = row+1;
-			while (x >= 0 && y < 8 && b.board[x][y] == -128)
-				candidates[size++] = (byte) (-64&current | (x--)<<3 | y++);
-			if (x >= 0 && y < 8 && b.board[x][y] > 15)
-				candidates[size++] = (byte) (-64&current | x<<3 | y);
-			
-			// move down and to the left	
-			x = col-1;
-			y = row-1;
-			while (x >= 0 && y >= 0 && b.board[x][y] == -128)
-				candidates[size++] = (byte) (-64&current | (x--)<<3 | y--);
-			if (x >= 0 && y >= 0 && b.board[x][y] > 15)
-				candidates[size++] = (byte) (-64&current | x<<3 | y);
-		} else { // piece is white
-			// move up and to the right
-			while (x < 8 && y < 8 && b.board[x][y] == -128)
-				candidates[size++] = (byte) (-64&current | (x++)<<3 | y++);
-			if (x < 8 && y < 8 && b.board[x][y] < 16)
-				candidates[size++] = (byte) (-64&current | x<<3 | y);
-			
-			// move down and to the right
-			x = col+1;
-			y = row-1;
-			while (x < 8 && y >= 0 && b.board[x][y] == -128) 
-				candidates[size++] = (byte) (-64&current | (x++)<<3 | y--);
-			if (x < 8 && y >= 0 && b.board[x][y] < 16)
-				candidates[size++] = (byte) (-64&current | x<<3 | y);
-				
-			// move up and to the left
-			x = col-1;
-			y = row+1;
-			while (x >= 0 && y < 8 && b.board[x][y] == -128)
-				candidates[size++] = (byte) (-64&current | (x--)<<3 | y++);
-			if (x >= 0 && y < 8 && b.board[x][y] < 16)
-				candidates[size++] = (byte) (-64&current | x<<3 | y);
-			
-			// move down and to the left
-			x = col-1;
-			y = row-1;
-			while (x >= 0 && y >= 0 && b.board[x][y] == -128)
-				candidates[size++] = (byte) (-64&current | (x--)<<3 | y--);
-			if (x >= 0 && y >= 0 && b.board[x][y] < 16)
-				candidates[size++] = (byte) (-64&current | x<<3 | y);
-		}
-		
+		byte[] candidates = new byte[14]; // max plus one
+		getMoves(current,candidates,0);
 		return candidates;
 	}
+
+	/**
+	 * Writes the moves of #getMoves(byte) into a caller-owned buffer.
+	 * 
+	 * @param current  the current piece
+	 * @param moves  buffer to write into
+	 * @param offset  index of the first move written
+	 * @return offset plus the number of moves written
+	 */
+	public int getMoves (byte current, byte[] moves, int offset) {
+		int size = offset;
+
+		// every attacked square that is empty or holds an enemy piece
+		int own = ((-128&current) == -128) ? 0 : 1;
+		long targets = Magic.bishopAttacks(63&current,b.occupied) & ~b.colourBoards[own];
+		while (targets != 0) {
+			moves[size++] = (byte) (-64&current | Long.numberOfTrailingZeros(targets));
+			targets &= targets-1;
+		}
+
+		return size;
+	}
 }
\ No newline at end of file
@@ -11,6 +11,18 @@ import Chess.*;
 public class King implements PieceInterface {
 	
 	private Board b;
+
+	// Neighbouring squares for a king on each square (col<<3 | row), filled once.
+	// stepBoards holds the same squares as a bitboard, for attack queries.
+	private static final byte[][] steps = new byte[64][];
+	private static final long[] stepBoards = new long[64];
+	static {
+		int[][] offsets = {{1,0},{1,1},{1,-1},{-1,0},{-1,1},{-1,-1},{0,1},{0,-1}};
+		for (int sq = 0; sq < 64; sq++) {
+			steps[sq] = Knight.targets(sq,offsets);
+			stepBoards[sq] = Knight.toBitboard(steps[sq]);
+		}
+	}
 		
 	/**
 	 * Constructor
@@ -21,6 +33,16 @@ public class King implements PieceInterface {
 		this.b = b;
 	}
 	
+	/**
+	 * Used by Board to find attackers of a square (castling aside).
+	 * 
+	 * @param square  (col<<3 | row)
+	 * @return every square a king on square attacks, as a bitboard
+	 */
+	public static long attacks (int square) {
+		return stepBoards[square];
+	}
+	
 	/**
 	 * Symbol to print to console. Is not used for identification by Board after setup.
 	 * 
@@ -54,57 +76,24 @@ public class King implements PieceInterface {
 		// ensure castle is valid
 		if (diffCol == 2) {
 			// kingside
-			if (CastleSync.canCastle(next) && b.board[5][oldRow] == -128 && b.board[6][oldRow] == -128 && b.board[7][oldRow] != -128) {
+			if (CastleSync.canCastle(b.getCastleFlags(),next) && b.board[5][oldRow] == -128 && b.board[6][oldRow] == -128 && b.board[7][oldRow] != -128) {
 				return true;
 			} else {
 				return false;
 			}
 		} else if (diffCol == -2) { 
 			// queenside
-			if (CastleSync.canCastle(next) && b.board[1][oldRow] == -128 && b.board[2][oldRow] == -128 && b.board[3][oldRow] == -128 && b.board[0][oldRow] != -128) {
+			if (CastleSync.canCastle(b.getCastleFlags(),next) && b.board[1][oldRow] == -128 && b.board[2][oldRow] == -128 && b.board[3][oldRow] == -128 && b.board[0][oldRow] != -128) {
 				return true;
 			} else {
 				return false;
 			}
 		}
 		
-		byte[] n = {next,0};
-		if (checkCollisions(current,n)[0] == 0)
-			return false;
-		return true;
-	}
-	
-	/**
-	 * Makes sure the king does not run into another piece during it's move.
-	 * 
-	 * @param current  the current piece
-	 * @param candidates  possible next pieces
-	 * @return a byte array of unkown length containing valid next positions. 
-	 * 		   Not every element is a valid position; other code is expecting
-	 * 		   this array to be filled starting from index zero and increasing.
-	 * 		   Once an element of value zero is encountered, there are no more
-	 * 		   valid moves; the rest of the array can be skipped.
-	 */
-	private byte[] checkCollisions (byte current, byte[] candidates) {
-		byte count = 0;
-		byte i = 0;
-		if ((-128&current) == -128) {
-			while (candidates[i] != 0) {
-				if (b.board[(56&candidates[i])>>3][7&candidates[i]] == -128 || b.board[(56&candidates[i])>>3][7&candidates[i]] > 15) {
-					candidates[count++] = candidates[i];
-				}
-				i++;
-			}
-		} else {
-			while (candidates[i] != 0) {
-				if (b.board[(56&candidates[i])>>3][7&candidates[i]] < 16) {
-					candidates[count++] = candidates[i];
-				}
-				i++;
-			}
-		}
-		candidates[count] = 0;
-		return candidates;
+		byte target = b.board[(56&next)>>3][7&next];
+		if ((-128&current) == -128)
+			return target == -128 || target > 15;
+		return target < 16;
 	}
 	
 	/**
@@ -119,41 +108,49 @@ public class King implements PieceInterface {
 	 */
 	public byte[] getMoves (byte current) {
 		byte[] candidates = new byte[11]; // one more than needed
-		byte col = (byte)((current&56)>>3);
-		byte row = (byte)(current&7);
-		byte count = 0;
-				
-		if (col+1 < 8) {
-			candidates[count++] = (byte) (-57&current | (col+1)<<3); // -57 = same row
-			if (row+1 < 8)
-				candidates[count++] = (byte) (-64&current | (col+1)<<3 | row+1);
-			if (row-1 >= 0)
-				candidates[count++] = (byte) (-64&current | (col+1)<<3 | row-1);
-			if (col+2 < 8 && CastleSync.canCastle((byte)(16+current))) {
-				// kingside
-				if (b.board[5][row] == -128 && b.board[7][row] != -128)
-					candidates[count++] = (byte) (16+current);
+		getMoves(current,candidates,0);
+		return candidates;
+	}
+
+	/**
+	 * Writes the moves of #getMoves(byte) into a caller-owned buffer.
+	 * 
+	 * @param current  the current piece
+	 * @param moves  buffer to write into
+	 * @param offset  index of the first move written
+	 * @return offset plus the number of moves written
+	 */
+	public int getMoves (byte current, byte[] moves, int offset) {
+		byte[] targets = steps[63&current];
+		int row = 7&current;
+		int size = offset;
+
+		if ((-128&current) == -128) {
+			for (byte t : targets) {
+				byte target = b.board[t>>3][t&7];
+				if (target == -128 || target > 15)
+					moves[size++] = (byte) (-64&current | t);
 			}
-		}
-		
-		if (col-1 >= 0) {
-			candidates[count++] = (byte) (-57&current | (col-1)<<3);
-			if (row+1 < 8)
-				candidates[count++] = (byte) (-64&current | (col-1)<<3 | row+1);
-			if (row-1 >= 0)
-				candidates[count++] = (byte) (-64&current | (col-1)<<3 | row-1);
-			if (col-2 < 8 && CastleSync.canCastle((byte)(current-16))) {
-				// queenside
-				if (b.board[1][row] == -128 && b.board[3][row] == -128 && b.board[0][row] != -128)
-					candidates[count++] = (byte) (current-16);
+		} else {
+			for (byte t : targets) {
+				if (b.board[t>>3][t&7] < 16)
+					moves[size++] = (byte) (-64&current | t);
 			}
 		}
-		
-		if (row+1 < 8)
-			candidates[count++] = (byte) (-8&current | row+1); // -8 = same col
-		if (row-1 >= 0)
-			candidates[count++] = (byte) (-8&current | row-1);
 
-		return checkCollisions(current, candidates);
+		// CastleSync only answers true for a king on its starting square,
+		// so the back rank can be read without bounds checks
+		if (CastleSync.canCastle(b.getCastleFlags(),(byte)(16+current))) {
+			// kingside
+			if (b.board[5][row] == -128 && b.board[6][row] == -128 && b.board[7][row] != -128)
+				moves[size++] = (byte) (16+current);
+		}
+		if (CastleSync.canCastle(b.getCastleFlags(),(byte)(current-16))) {
+			// queenside
+			if (b.board[1][row] == -128 && b.board[2][row] == -128 && b.board[3][row] == -128 && b.board[0][row] != -128)
+				moves[size++] = (byte) (current-16);
+		}
+
+		return size;
 	}
 }
\ No newline at end of file
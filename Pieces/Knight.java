@@ -12,6 +12,19 @@ import Chess.*;
 public class Knight implements PieceInterface {
 	
 	private Board b;
+
+	// Target squares for a knight on each square (col<<3 | row), filled once.
+	// Only squares that stay on the board are listed, so no bounds checks are needed.
+	// jumpBoards holds the same squares as a bitboard, for attack queries.
+	private static final byte[][] jumps = new byte[64][];
+	private static final long[] jumpBoards = new long[64];
+	static {
+		int[][] offsets = {{1,2},{2,1},{2,-1},{1,-2},{-1,-2},{-2,-1},{-2,1},{-1,2}};
+		for (int sq = 0; sq < 64; sq++) {
+			jumps[sq] = targets(sq,offsets);
+			jumpBoards[sq] = toBitboard(jumps[sq]);
+		}
+	}
 	
 	/**
 	 * Constructor
@@ -21,6 +34,50 @@ public class Knight implements PieceInterface {
 	public Knight (Board b) {
 		this.b = b;
 	}
+
+	/**
+	 * Build the list of squares reachable from square by each {col,row} offset.
+	 * Shared with King, which only differs in its offsets.
+	 * 
+	 * @param square   the origin (col<<3 | row)
+	 * @param offsets  {col,row} pairs
+	 * @return the on-board target squares
+	 */
+	static byte[] targets (int square, int[][] offsets) {
+		byte[] scratch = new byte[offsets.length];
+		int size = 0;
+		for (int[] o : offsets) {
+			int x = (square>>3) + o[0];
+			int y = (square&7) + o[1];
+			if (x >= 0 && x < 8 && y >= 0 && y < 8)
+				scratch[size++] = (byte) (x<<3 | y);
+		}
+		byte[] out = new byte[size];
+		System.arraycopy(scratch,0,out,0,size);
+		return out;
+	}
+	
+	/**
+	 * @param squares  a list of squares (col<<3 | row)
+	 * @return the same squares as a bitboard (see Board.pieceBoards)
+	 */
+	static long toBitboard (byte[] squares) {
+		long out = 0L;
+		for (byte sq : squares)
+			out |= 1L << sq;
+		return out;
+	}
+
+	/**
+	 * Used by Board to find attackers of a square. Knight moves are symmetric, so
+	 * the knights attacking square are the ones standing on attacks(square).
+	 * 
+	 * @param square  (col<<3 | row)
+	 * @return every square a knight on square attacks, as a bitboard
+	 */
+	public static long attacks (int square) {
+		return jumpBoards[square];
+	}
 	
 	/**
 	 * Symbol to print to console. Is not used for identification by Board.
@@ -35,72 +92,31 @@ public class Knight implements PieceInterface {
 	
 	/**
 	 * Used to ensure a move makes mechanical sense. Knights can only move
-	 * two squares one way and one the other. Does not check for check.
+	 * two squares one way and one the other, and cannot land on a piece of
+	 * their own colour. Does not check for check.
 	 * 
 	 * @param current  the current piece
 	 * @param next  where the piece wants to be
 	 * @return true if move is valid, false if not
 	 */
 	public boolean validateMove (byte current, byte next) {
-		int diffCol = ((56&current)>>3)-((56&next)>>3);
-		int diffRow = (7&current)-(7&next);
+		int diffCol = Math.abs(((56&current)>>3)-((56&next)>>3));
+		int diffRow = Math.abs((7&current)-(7&next));
 		
-		if ((Math.abs(diffCol) != 1 || Math.abs(diffRow) != 2) &&
-			(Math.abs(diffCol) != 2 || Math.abs(diffRow) != 1)) {
+		if ((diffCol != 1 || diffRow != 2) && (diffCol != 2 || diffRow != 1))
 			return false;
-		}
 		
-		byte[] n = {next,0};
-		
-		if (diffRow == 1 && diffCol == 2) {
-			if (checkCollisions(current,n)[0] == 0)
-				return false;
-		} else if (diffRow == 2 && diffCol == 1) {
-			if (checkCollisions(current,n)[0] == 0)
-				return false;
-		}
-		
-		return true;
-	}
-	
-	/**
-	 * Makes sure knight does not run into another piece during it's move.
-	 * 
-	 * @param current  the current piece
-	 * @param candidates  possible next pieces
-	 * @return a byte array of unkown length containing valid next positions. 
-	 * 		   Not every element is a valid position; other code is expecting
-	 * 		   this array to be filled starting from index zero and increasing.
-	 * 		   Once an element of value zero is encountered, there are no more
-	 * 		   valid moves; the rest of the array can be skipped.
-	 */
-	private byte[] checkCollisions (byte current, byte[] candidates) {
-		byte count = 0;
-		byte i = 0;
-		if ((-128&current) == -128) {
-			while (candidates[i] != 0) {
-				if (b.board[(56&candidates[i])>>3][7&candidates[i]] == -128 || b.board[(56&candidates[i])>>3][7&candidates[i]] > 15) {
-					candidates[count++] = candidates[i];
-				}
-				i++;
-			}
-		} else {
-			while (candidates[i] != 0) {
-				if (b.board[(56&candidates[i])>>3][7&candidates[i]] < 16) {
-					candidates[count++] = candidates[i];
-				}
-				i++;
-			}
-		}
-		candidates[count] = 0;
-		return candidates;
+		byte target = b.board[(56&next)>>3][7&next];
+		if ((-128&current) == -128)
+			return target == -128 || target > 15;
+		return target < 16;
 	}
 	
 	/**
 	 * Returns every valid mechanical move possible from the current position.
 	 * Does not check check. Used by Board to calculate check and by Computer
-	 * to generate branches. This method generates the set of all possible
-	 * moves which stay on the board, and then checks for collisions.
+	 * to generate branches. The on-board targets are read from a table built
+	 * once per square, leaving only the collision check per target.
 	 * 
 	 * @param current  the current piece
 	 * @return an array of valid moves, starting from index zero. Not all values are
@@ -109,205 +125,35 @@ public class Knight implements PieceInterface {
 	 */
 	public byte[] getMoves (byte current) {
 		byte[] candidates = new byte[9];
-		byte col = (byte)((current&56)>>3);
-		byte row = (byte)(current&7);
+		getMoves(current,candidates,0);
+		return candidates;
+	}
 
-		byte state = 0;
-		if (row+2 < 8) {
-			state = (byte) (state | 1);
-		} else if (row+1 < 8) {
-			state = (byte) (state | 2);
-		}
-		if (col+2 < 8) {
-			state = (byte) (state | 4);
-		} else if (col+1 < 8) {
-			state = (byte) (state | 8);
-		}
-		if (row-2 >= 0) {
-			state = (byte) (state | 16);
-		} else if (row-1 >= 0) {
-			state = (byte) (state | 32);
-		}
-		if (col-2 >= 0) {
-			state = (byte) (state | 64);
-		} else if (col-1 >= 0) {
-			state = (byte) (state | -128);
-		}
-		
-		switch (state) {
-			case 85:
-				// all sides available
-				candidates[0] = (byte) (-64&current | (col+1)<<3 | row+2);
-				candidates[1] = (byte) (-64&current | (col+2)<<3 | row+1);
-				candidates[2] = (byte) (-64&current | (col+2)<<3 | row-1);
-				candidates[3] = (byte) (-64&current | (col+1)<<3 | row-2);
-				candidates[4] = (byte) (-64&current | (col-1)<<3 | row-2);
-				candidates[5] = (byte) (-64&current | (col-2)<<3 | row-1);
-				candidates[6] = (byte) (-64&current | (col-2)<<3 | row+1);
-				candidates[7] = (byte) (-64&current | (col-1)<<3 | row+2);
-				break;
-			case 86:
-				// cannot move way up
-				candidates[0] = (byte) (-64&current | (col+2)<<3 | row+1);
-				candidates[1] = (byte) (-64&current | (col+2)<<3 | row-1);
-				candidates[2] = (byte) (-64&current | (col+1)<<3 | row-2);
-				candidates[3] = (byte) (-64&current | (col-1)<<3 | row-2);
-				candidates[4] = (byte) (-64&current | (col-2)<<3 | row-1);
-				candidates[5] = (byte) (-64&current | (col-2)<<3 | row+1);
-				break;
-			case 84:
-				// cannot move up
-				candidates[0] = (byte) (-64&current | (col+2)<<3 | row-1);
-				candidates[1] = (byte) (-64&current | (col+1)<<3 | row-2);
-				candidates[2] = (byte) (-64&current | (col-1)<<3 | row-2);
-				candidates[3] = (byte) (-64&current | (col-2)<<3 | row-1);
-				break;
-			case 90:
-				// cannot move way up or way right
-				candidates[0] = (byte) (-64&current | (col+1)<<3 | row-2);
-				candidates[1] = (byte) (-64&current | (col-1)<<3 | row-2);
-				candidates[2] = (byte) (-64&current | (col-2)<<3 | row-1);
-				candidates[3] = (byte) (-64&current | (col-2)<<3 | row+1);
-				break;
-			case 82:
-				// cannot move way up or right
-				candidates[0] = (byte) (-64&current | (col-1)<<3 | row-2);
-				candidates[1] = (byte) (-64&current | (col-2)<<3 | row-1);
-				candidates[2] = (byte) (-64&current | (col-2)<<3 | row+1);
-				break;
-			case 88:
-				// cannote move up or way right
-				candidates[0] = (byte) (-64&current | (col+1)<<3 | row-2);
-				candidates[1] = (byte) (-64&current | (col-1)<<3 | row-2);
-				candidates[2] = (byte) (-64&current | (col-2)<<3 | row-1);
-				break;
-			case 80:
-				// cannot move up or right
-				candidates[0] = (byte) (-64&current | (col-1)<<3 | row-2);
-				candidates[1] = (byte) (-64&current | (col-2)<<3 | row-1);
-				break;
-			case 89:
-				// cannot move way right
-				candidates[0] = (byte) (-64&current | (col+1)<<3 | row+2);
-				candidates[1] = (byte) (-64&current | (col+1)<<3 | row-2);
-				candidates[2] = (byte) (-64&current | (col-1)<<3 | row-2);
-				candidates[3] = (byte) (-64&current | (col-2)<<3 | row-1);
-				candidates[4] = (byte) (-64&current | (col-2)<<3 | row+1);
-				candidates[5] = (byte) (-64&current | (col-1)<<3 | row+2);
-				break;
-			case 81:
-				// cannot move right
-				candidates[0] = (byte) (-64&current | (col-1)<<3 | row-2);
-				candidates[1] = (byte) (-64&current | (col-2)<<3 | row-1);
-				candidates[2] = (byte) (-64&current | (col-2)<<3 | row+1);
-				candidates[3] = (byte) (-64&current | (col-1)<<3 | row+2);
-				break;
-			case 105:
-				// cannot move way right or way down
-				candidates[0] = (byte) (-64&current | (col+1)<<3 | row+2);
-				candidates[1] = (byte) (-64&current | (col-2)<<3 | row-1);
-				candidates[2] = (byte) (-64&current | (col-2)<<3 | row+1);
-				candidates[3] = (byte) (-64&current | (col-1)<<3 | row+2);
-				break;
-			case 73:
-				// cannot move way right or down
-				candidates[0] = (byte) (-64&current | (col+1)<<3 | row+2);
-				candidates[1] = (byte) (-64&current | (col-2)<<3 | row+1);
-				candidates[2] = (byte) (-64&current | (col-1)<<3 | row+2);
-				break;
-			case 97:
-				// cannot move right or way down
-				candidates[0] = (byte) (-64&current | (col-2)<<3 | row-1);
-				candidates[1] = (byte) (-64&current | (col-2)<<3 | row+1);
-				candidates[2] = (byte) (-64&current | (col-1)<<3 | row+2);
-				break;
-			case 65:
-				// cannot move right or down
-				candidates[0] = (byte) (-64&current | (col-2)<<3 | row+1);
-				candidates[1] = (byte) (-64&current | (col-1)<<3 | row+2);
-				break;
-			case 101:
-				// cannot move way down
-				candidates[0] = (byte) (-64&current | (col+1)<<3 | row+2);
-				candidates[1] = (byte) (-64&current | (col+2)<<3 | row+1);
-				candidates[2] = (byte) (-64&current | (col+2)<<3 | row-1);
-				candidates[3] = (byte) (-64&current | (col-2)<<3 | row-1);
-				candidates[4] = (byte) (-64&current | (col-2)<<3 | row+1);
-				candidates[5] = (byte) (-64&current | (col-1)<<3 | row+2);
-				break;
-			case 69:
-				// cannot move down
-				candidates[0] = (byte) (-64&current | (col+1)<<3 | row+2);
-				candidates[1] = (byte) (-64&current | (col+2)<<3 | row+1);
-				candidates[2] = (byte) (-64&current | (col-2)<<3 | row+1);
-				candidates[3] = (byte) (-64&current | (col-1)<<3 | row+2);
-				break;
-			case -91:
-				// cannot move way down or way left
-				candidates[0] = (byte) (-64&current | (col+1)<<3 | row+2);
-				candidates[1] = (byte) (-64&current | (col+2)<<3 | row+1);
-				candidates[2] = (byte) (-64&current | (col+2)<<3 | row-1);
-				candidates[3] = (byte) (-64&current | (col-1)<<3 | row+2);
-				break;
-			case 37:
-				// cannot move way down or left
-				candidates[0] = (byte) (-64&current | (col+1)<<3 | row+2);
-				candidates[1] = (byte) (-64&current | (col+2)<<3 | row+1);
-				candidates[2] = (byte) (-64&current | (col+2)<<3 | row-1);
-				break;
-			case -123:
-				// cannot move down or way left
-				candidates[0] = (byte) (-64&current | (col+1)<<3 | row+2);
-				candidates[1] = (byte) (-64&current | (col+2)<<3 | row+1);
-				candidates[2] = (byte) (-64&current | (col-1)<<3 | row+2);
-				break;
-			case 5:
-				// cannot move down or left
-				candidates[0] = (byte) (-64&current | (col+1)<<3 | row+2);
-				candidates[1] = (byte) (-64&current | (col+2)<<3 | row+1);
-				break;
-			case -107:
-				// cannot move way left
-				candidates[0] = (byte) (-64&current | (col+1)<<3 | row+2);
-				candidates[1] = (byte) (-64&current | (col+2)<<3 | row+1);
-				candidates[2] = (byte) (-64&current | (col+2)<<3 | row-1);
-				candidates[3] = (byte) (-64&current | (col+1)<<3 | row-2);
-				candidates[4] = (byte) (-64&current | (col-1)<<3 | row-2);
-				candidates[5] = (byte) (-64&current | (col-1)<<3 | row+2);
-				break;
-			case 21:
-				// cannot move left
-				candidates[0] = (byte) (-64&current | (col+1)<<3 | row+2);
-				candidates[1] = (byte) (-64&current | (col+2)<<3 | row+1);
-				candidates[2] = (byte) (-64&current | (col+2)<<3 | row-1);
-				candidates[3] = (byte) (-64&current | (col+1)<<3 | row-2);
-				break;
-			case -106:
-				// cannot move way up or way left
-				candidates[0] = (byte) (-64&current | (col+2)<<3 | row+1);
-				candidates[1] = (byte) (-64&current | (col+2)<<3 | row-1);
-				candidates[2] = (byte) (-64&current | (col+1)<<3 | row-2);
-				candidates[3] = (byte) (-64&current | (col-1)<<3 | row-2);
-				break;
-			case -108:
-				// cannot move way left or up
-				candidates[0] = (byte) (-64&current | (col+2)<<3 | row-1);
-				candidates[1] = (byte) (-64&current | (col+1)<<3 | row-2);
-				candidates[2] = (byte) (-64&current | (col-1)<<3 | row-2);
-				break;
-			case 22:
-				// cannot move left or way up
-				candidates[0] = (byte) (-64&current | (col+2)<<3 | row+1);
-				candidates[1] = (byte) (-64&current | (col+2)<<3 | row-1);
-				candidates[2] = (byte) (-64&current | (col+1)<<3 | row-2);
-				break;
-			case 20:
-				// cannot move up or left
-				candidates[0] = (byte) (-64&current | (col+2)<<3 | row-1);
-				candidates[1] = (byte) (-64&current | (col+1)<<3 | row-2);
-				break;
+	/**
+	 * Writes the moves of #getMoves(byte) into a caller-owned buffer.
+	 * 
+	 * @param current  the current piece
+	 * @param moves  buffer to write into
+	 * @param offset  index of the first move written
+	 * @return offset plus the number of moves written
+	 */
+	public int getMoves (byte current, byte[] moves, int offset) {
+		byte[] targets = jumps[63&current];
+		int size = offset;
+
+		if ((-128&current) == -128) {
+			for (byte t : targets) {
+				byte target = b.board[t>>3][t&7];
+				if (target == -128 || target > 15)
+					moves[size++] = (byte) (-64&current | t);
+			}
+		} else {
+			for (byte t : targets) {
+				if (b.board[t>>3][t&7] < 16)
+					moves[size++] = (byte) (-64&current | t);
+			}
 		}
 		
-		return checkCollisions(current,candidates);
+		return size;
 	}
-}
\ No newline at end of file
+}
@@ -14,6 +14,22 @@ public final class Pawn implements PieceInterface {
 	private int startRow, enPassant;
 	private boolean capturePassant;
 	private Board b;
+
+	// Diagonal capture squares for a pawn on each square (col<<3 | row), filled once.
+	// The first index is the colour: 0 = black (moves down), 1 = white (moves up).
+	// attackBoards holds the same squares as bitboards, for attack queries.
+	private static final byte[][][] attacks = new byte[2][64][];
+	private static final long[][] attackBoards = new long[2][64];
+	static {
+		int[][] black = {{-1,-1},{1,-1}};
+		int[][] white = {{-1,1},{1,1}};
+		for (int sq = 0; sq < 64; sq++) {
+			attacks[0][sq] = Knight.targets(sq,black);
+			attacks[1][sq] = Knight.targets(sq,white);
+			attackBoards[0][sq] = Knight.toBitboard(attacks[0][sq]);
+			attackBoards[1][sq] = Knight.toBitboard(attacks[1][sq]);
+		}
+	}
 	
 	/**
 	 * Constructor
@@ -24,6 +40,18 @@ public final class Pawn implements PieceInterface {
 		this.b = b;
 	}
 	
+	/**
+	 * Used by Board to find attackers of a square. A square is attacked by a white
+	 * pawn standing on any square that a black pawn on it would attack, and vice versa.
+	 * 
+	 * @param colour  0 = black, 1 = white (as in Board.pieceBoards)
+	 * @param square  (col<<3 | row)
+	 * @return the squares a pawn of that colour on square attacks, as a bitboard
+	 */
+	public static long attacks (int colour, int square) {
+		return attackBoards[colour][square];
+	}
+	
 	/**
 	 * Symbol to print to console. Is not used for identification by Board after setup.
 	 * 
@@ -51,25 +79,20 @@ public final class Pawn implements PieceInterface {
 		
 		int diffCol = newCol-oldCol;
 		int diffRow = newRow-oldRow;
-		byte oldPawn;
 		
 		if (Math.abs(diffCol) == 1 && diffRow == -1 && (-128&current) == -128) {
 			if (b.board[newCol][newRow] > 15) {
 				return true;
-			} else if (newRow == 2 && b.board[newCol][oldRow] > 15) {
-				// check en passant
-				oldPawn = (byte) (65 | newCol<<3);
-				if (b.pieceNames[b.board[newCol][oldRow]] == 'P' && b.board[newCol][oldRow] == b.moveHistory.pieces[1] && b.moveHistory.pieces[2] == oldPawn) 
-					return true;
+			} else if (newRow == 2 && (63&next) == b.getEpSquare()) {
+				// en passant
+				return true;
 			}
 		} else if (Math.abs(diffCol) == 1 && diffRow == 1 && (-128&current) == 0) {
 			if (b.board[newCol][newRow] != -128 && b.board[newCol][newRow] < 16) {
 				return true;
-			} else if (newRow == 5 && b.board[newCol][oldRow] != -128 && b.board[newCol][oldRow] < 16) {
-				// check en passant
-				oldPawn = (byte) (-58 | newCol<<3);
-				if (b.pieceNames[b.board[newCol][oldRow]] == 'P' && b.board[newCol][oldRow] == b.moveHistory.pieces[1] && b.moveHistory.pieces[2] == oldPawn)
-					return true;
+			} else if (newRow == 5 && (63&next) == b.getEpSquare()) {
+				// en passant
+				return true;
 			}
 		} else if (diffCol == 0) {
 			if (diffRow == -2) {
@@ -93,7 +116,10 @@ public final class Pawn implements PieceInterface {
 	/**
 	 * Returns every valid mechanical move possible from the current position.
 	 * Does not check check. Used by Board to calculate check and by Computer
-	 * to generate branches.
+	 * to generate branches. Capture squares come from a table built once per
+	 * square, so pawns on the edge files need no bounds checks. A move onto a
+	 * back rank is listed once; Board#generateMoves() expands it into one move
+	 * per promotion piece.
 	 * 
 	 * @param current  the current piece
 	 * @return an array of valid moves, starting from index zero. Not all values are
@@ -102,73 +128,56 @@ public final class Pawn implements PieceInterface {
 	 */
 	public byte[] getMoves (byte current) {
 		byte[] candidates = new byte[5];
+		getMoves(current,candidates,0);
+		return candidates;
+	}
+
+	/**
+	 * Writes the moves of #getMoves(byte) into a caller-owned buffer.
+	 * 
+	 * @param current  the current piece
+	 * @param moves  buffer to write into
+	 * @param offset  index of the first move written
+	 * @return offset plus the number of moves written
+	 */
+	public int getMoves (byte current, byte[] moves, int offset) {
 		byte col = (byte)((current&56)>>3);
 		byte row = (byte)(current&7);
-		int size = 0;
+		int size = offset;
 		
 		if ((-128&current) == -128) {
 			if (b.board[col][row-1] == -128) {
-				candidates[size++] = (byte) (-8&current | row-1);
+				moves[size++] = (byte) (-8&current | row-1);
 				if (row == 6 && b.board[col][4] == -128) {
-					candidates[size++] = (byte) (-8&current | 4);
-				} else if (row == 1) {
-					// Pawn gets promoted. Board and Computer automatically check
-					// both queen and knight promotions, made possible by including
-					// a duplicate move.
-					candidates[size++] = (byte) (-8&current | row-1);
-				}
-			}
-			if (col-1 >= 0) {
-				if (b.board[col-1][row-1] > 15) {
-					candidates[size++] = (byte) (-64&current | (col-1)<<3 | row-1);
-				} else if (row == 3 && b.board[col-1][3] > 23 && b.board[col-1][3] == b.moveHistory.pieces[1]) {
-					byte oldPawn = (byte) (65 | (col-1)<<3);
-					if (b.moveHistory.pieces[2] == oldPawn)
-						candidates[size++] = (byte) (-62 | (col-1)<<3);
+					moves[size++] = (byte) (-8&current | 4);
 				}
 			}
-			if (col+1 < 8) {
-				if (b.board[col+1][row-1] > 15) {
-					candidates[size++] = (byte) (-64&current | (col+1)<<3 | row-1);
-				} else if (row == 3 && b.board[col+1][3] > 23 && b.board[col+1][3] == b.moveHistory.pieces[1]) {
-					byte oldPawn = (byte) (65 | (col+1)<<3);
-					if (b.moveHistory.pieces[2] == oldPawn)
-						candidates[size++] = (byte) (-62 | (col+1)<<3);
+			for (byte t : attacks[0][63&current]) {
+				byte target = b.board[t>>3][t&7];
+				if (target > 15) {
+					moves[size++] = (byte) (-64&current | t);
+				} else if (row == 3 && t == b.getEpSquare()) {
+					moves[size++] = (byte) (-64&current | t);
 				}
 			}
 		} else {
 			if (b.board[col][row+1] == -128) {
-				candidates[size++] = (byte) (-8&current | row+1);
+				moves[size++] = (byte) (-8&current | row+1);
 				if (row == 1 && b.board[col][3] == -128) {
-					candidates[size++] = (byte) (-8&current | 3);
-				} else if (row == 6) {
-					// Pawn gets promoted. Board and Computer automatically check
-					// both queen and knight promotions, made possible by including
-					// a duplicate move.
-					candidates[size++] = (byte) (-8&current | row+1);
+					moves[size++] = (byte) (-8&current | 3);
 				}
 			}
-			if (col-1 >= 0) {
-				if (b.board[col-1][row+1] != -128 && b.board[col-1][row+1] < 16) {
-					candidates[size++] = (byte) (-64&current | (col-1)<<3 | row+1);
-				} else if (row == 4 && b.board[col-1][4] > 7 && b.board[col-1][4] < 16 && b.board[col-1][4] == b.moveHistory.pieces[1]) {
-					byte oldPawn = (byte) (-58 | (col-1)<<3);
-					if (b.moveHistory.pieces[2] == oldPawn)
-						candidates[size++] = (byte) (69 | (col-1)<<3);
-				}
-			}
-			if (col+1 < 8) {
-				if (b.board[col+1][row+1] != -128 && b.board[col+1][row+1] < 16) {
-					candidates[size++] = (byte) (-64&current | (col+1)<<3 | row+1);
-				} else if (row == 4 && b.board[col+1][4] > 7 && b.board[col+1][4] < 16 && b.board[col+1][4] == b.moveHistory.pieces[1]) {
-					byte oldPawn = (byte) (-58 | (col+1)<<3);
-					if (b.moveHistory.pieces[2] == oldPawn)
-						candidates[size++] = (byte) (69 | (col+1)<<3);
+			for (byte t : attacks[1][63&current]) {
+				byte target = b.board[t>>3][t&7];
+				if (target != -128 && target < 16) {
+					moves[size++] = (byte) (-64&current | t);
+				} else if (row == 4 && t == b.getEpSquare()) {
+					moves[size++] = (byte) (-64&current | t);
 				}
 			}
 		}
 
-		return candidates;
+		return size;
 	}
 
 }
\ No newline at end of file
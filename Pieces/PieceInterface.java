@@ -29,4 +29,17 @@ public interface PieceInterface {
 	 *         to be zero.
 	 */
 	public byte[] getMoves (byte current);
+
+	/**
+	 * Allocation-free form of #getMoves(byte), for callers that generate moves
+	 * in a loop and own a reusable buffer.
+	 * 
+	 * @param current  the current piece (colour, in play status, and position).
+	 * @param moves  buffer to write valid moves into. Must have room for every
+	 *               move the piece could make from offset onwards.
+	 * @param offset  the index of moves to write the first move to.
+	 * @return offset plus the number of moves written. Nothing is written past
+	 *         the last move (in particular, no zero terminator).
+	 */
+	public int getMoves (byte current, byte[] moves, int offset);
 }
\ No newline at end of file
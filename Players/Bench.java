@@ -0,0 +1,148 @@
+package Chess.Players;
+
+import Chess.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Searches a fixed set of positions to a fixed depth and reports the nodes
+ * searched, the time taken and the nodes per second. Ties between moves are
+ * broken with a fixed seed, so the total node count only changes when the
+ * search itself does: a change meant purely as a speedup must leave it alone,
+ * while the nodes per second can be compared between builds on one machine.
+ *
+ * Usage:
+ *   java Chess.Players.Bench [depth] [-simple] [-hash MB] [-threads N] [-no NAME] [-margin NAME N]
+ * options:
+ *   -simple          use the simple evaluation function (default is the complex one)
+ *   -hash MB         transposition table size (default TranspositionTable.DEFAULT_MB)
+ *   -threads N       search with N threads (see Computer#setThreads(int)); with more
+ *                    than one, the threads race, so the node count varies between runs
+ *   -no NAME         switch off a forward pruning technique: futility, reverse
+ *                    (reverse futility), razor or delta
+ *   -margin NAME N   set its margin in pawns (see Computer#setPruning(int,boolean,int))
+ * Either can be repeated, so the nodes each technique saves can be measured.
+ *
+ * @author  Liam Marcassa
+ */
+public class Bench {
+
+	public static final int DEPTH = 5;
+	public static final long SEED = 3071L;
+
+	// openings, middlegames full of tactics, quiet middlegames and endgames
+	private static final String[] POSITIONS = {
+		Perft.START,
+		"r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3",
+		"rnbqkb1r/pp2pppp/3p1n2/8/3NP3/8/PPP2PPP/RNBQKB1R w KQkq - 1 5",
+		"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+		"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+		"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+		"r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1",
+		"2r3k1/pp3ppp/4p3/3p4/3P4/2P1P3/PP3PPP/2R3K1 w - - 0 25",
+		"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+		"8/8/4k3/8/2p5/8/B2P2K1/8 w - - 0 1",
+		"6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1"
+	};
+
+	// names of Computer's forward pruning techniques on the command line, in the order
+	// of Computer.FUTILITY to Computer.DELTA
+	private static final String[] PRUNING = {"futility", "reverse", "razor", "delta"};
+
+	/** Static helpers only */
+	private Bench () { }
+
+	/**
+	 * Search every position.
+	 *
+	 * @param depth  plies to search
+	 * @param simpleEval  which evaluation function to use
+	 * @param hashMB  transposition table size, a fresh table for each position
+	 * @param threads  number of search threads
+	 * @param pruning  which forward pruning techniques to use, indexed as in PRUNING
+	 * @param margins  their margins (see Computer#setPruning(int,boolean,int))
+	 * @param out  receives one line per position, or null
+	 * @return {total nodes, total nanoseconds}
+	 */
+	public static long[] run (int depth, boolean simpleEval, int hashMB, int threads, boolean[] pruning, int[] margins,
+			List<String> out) {
+		long nodes = 0, time = 0;
+		for (String fen : POSITIONS) {
+			Board b = new Board(Position.fromFEN(fen));
+			Computer computer = new Computer(b,b.getSideToMove(),simpleEval,depth);
+			computer.setSeed(SEED);
+			computer.setHashSize(hashMB);
+			computer.setThreads(threads);
+			for (int t = 0; t < PRUNING.length; t++)
+				computer.setPruning(t,pruning[t],margins[t]);
+			if (!simpleEval)
+				computer.detectState();
+
+			long start = System.nanoTime();
+			int move = computer.root(depth,0);
+			long elapsed = System.nanoTime()-start;
+
+			nodes += computer.getNodes();
+			time += elapsed;
+			if (out != null)
+				out.add(Move.toString(move) + "  " + computer.getNodes() + " nodes  " + fen);
+		}
+		return new long[] {nodes, time};
+	}
+
+	/**
+	 * @param name  a forward pruning technique's name, as in PRUNING
+	 * @return its index (Computer.FUTILITY to Computer.DELTA)
+	 * @throws IllegalArgumentException if there is no such technique
+	 */
+	private static int technique (String name) {
+		for (int t = 0; t < PRUNING.length; t++) {
+			if (PRUNING[t].equals(name))
+				return t;
+		}
+		throw new IllegalArgumentException("unknown pruning technique: " + name);
+	}
+
+	/**
+	 * Entry point, see the class description for arguments.
+	 *
+	 * @param args  command line arguments
+	 */
+	public static void main (String[] args) {
+		int depth = DEPTH;
+		int hashMB = TranspositionTable.DEFAULT_MB;
+		int threads = 1;
+		boolean simpleEval = false;
+		boolean[] pruning = {true, true, true, true};
+		int[] margins = Computer.DEFAULT_MARGINS.clone();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-simple"))
+				simpleEval = true;
+			else if (args[i].equals("-hash") && i+1 < args.length)
+				hashMB = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-threads") && i+1 < args.length)
+				threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-no") && i+1 < args.length)
+				pruning[technique(args[++i])] = false;
+			else if (args[i].equals("-margin") && i+2 < args.length)
+				margins[technique(args[++i])] = Integer.parseInt(args[++i]);
+			else
+				depth = Integer.parseInt(args[i]);
+		}
+
+		List<String> lines = new ArrayList<String>();
+		long[] result = run(depth,simpleEval,hashMB,threads,pruning,margins,lines);
+		for (String line : lines)
+			System.out.println(line);
+
+		long ms = Math.max(1,result[1]/1000000);
+		System.out.println("depth " + depth + (simpleEval ? ", simple" : ", complex") + " evaluation, " + threads
+			+ ((threads == 1) ? " thread" : " threads"));
+		for (int t = 0; t < PRUNING.length; t++)
+			System.out.println(PRUNING[t] + ": " + (pruning[t] ? "margin " + margins[t] : "off"));
+		System.out.println("nodes: " + result[0]);
+		System.out.println("time:  " + ms + " ms");
+		System.out.println("nps:   " + (result[0]*1000/ms));
+	}
+}
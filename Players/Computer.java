@@ -18,19 +18,121 @@ public class Computer implements PlayerInterface {
 	private Scanner in;
 	private Board b;
 	private Colour colour, tc;   // colour = our colour, tc = their colour
-	private char promoChar = 'N'; // what to promote a pawn to
 	private byte flags, flagsMask; // used to check castling
 	private boolean simpleEval,opening,endgame;
-	private int maxDepth;
+	private int maxDepth, moveTime;
+
+	// Depth of the iteration being searched (see #root(int,int)), the depth and
+	// score of the last one to complete, and when to give up on it (System.nanoTime(),
+	// zero for never).
+	private int searchDepth, lastDepth, lastScore;
+	private long deadline;
+	private boolean stopped;
+
+	// whether the leaves are extended by quiescence search, and whether it
+	// searches every reply to a check
+	private boolean quiesce, evasions;
+
+	// Breaks ties between equally good root moves. Seeded randomly so games vary,
+	// unless #setSeed(long) asks for repeatable searches.
+	private Random random;
+
+	// positions reached by the last search (moves made, leaves included)
+	private long nodes;
+
+	// deepest iteration when searching to a time limit
+	private static final int MAX_DEPTH = 64;
+
+	// Quiescence search (see #quiescence(boolean,int,int,Dispatch)) goes at most this
+	// many plies past the leaves.
+	private static final int QUIESCENCE_PLIES = 16;
+
+	// Forward pruning techniques, each switched on or off and given a margin (in pawns)
+	// with #setPruning(int,boolean,int). All are on by default, with DEFAULT_MARGINS.
+	// Futility pruning and razoring work one and two plies above the leaves, reverse
+	// futility pruning up to PRUNING_DEPTH plies above them (its margin is per ply).
+	public static final int FUTILITY = 0;
+	public static final int REVERSE_FUTILITY = 1;
+	public static final int RAZORING = 2;
+	public static final int DELTA = 3;
+	public static final int[] DEFAULT_MARGINS = {2, 1, 3, 2};
+	private static final int PRUNING_DEPTH = 3;
+	private boolean[] pruning;
+	private int[] margins;
+
+	// Null move pruning is tried with at least NULL_MOVE_DEPTH plies left below a node.
+	// The null move is searched two plies shallower than a real move would be, or
+	// three with more than NULL_MOVE_DEEP plies left (the reduction adapts to depth).
+	private static final int NULL_MOVE_DEPTH = 2;
+	private static final int NULL_MOVE_DEEP = 6;
+
+	// Late move reductions (see #reduction(int,int,int,boolean)) start after the first
+	// LMR_MOVES moves at a node with at least LMR_DEPTH plies left. LMR[depth][moves]
+	// is the reduction, growing with the log of both, and always leaves at least one
+	// ply to search.
+	private static final int LMR_MOVES = 3;
+	private static final int LMR_DEPTH = 3;
+	private static final int[][] LMR = new int[MAX_DEPTH+1][64];
+	static {
+		for (int depth = LMR_DEPTH; depth <= MAX_DEPTH; depth++) {
+			for (int moves = LMR_MOVES+1; moves < 64; moves++) {
+				int r = (int) (0.75 + Math.log(depth)*Math.log(moves)/2.25);
+				LMR[depth][moves] = Math.min(r,depth-2);
+			}
+		}
+	}
+
+	// Half the width of the first aspiration window around the last iteration's score
+	// (a pawn is 1). Each time the score falls outside, that side is widened four times
+	// over, and opened fully once wider than ASPIRATION_MAX.
+	private static final int ASPIRATION = 2;
+	private static final int ASPIRATION_MAX = 64;
 
 	// Large values, outside the range produced by the evaluation functions.
 	private static final int WIN = 15000;
 	private static final int STALE = -14000;
 
+	// Scores beyond this are mates and stalemates, which depend on how far from the
+	// root they were found (see Dispatch#lookAhead()).
+	private static final int DECIDED = 13000;
+
 	// Standing for myLow, myHigh, theirLow, theirHigh. These are indices
 	// relating to Board.pieces[]. These are calculated once instead of constantly
 	// checking colours or writing two nearly identical classes.
 	private int mLow, mHi, tLow, tHi;
+
+	// Owned by the search so that generating moves does not allocate. The root's
+	// moves are all generated up front into rootMoves; below the root each ply has
+	// a MovePicker, which generates moves in stages. Moves are packed ints (see
+	// Chess.Move).
+	private int[] rootMoves;
+	private MovePicker[] pickers;
+
+	// Null windows for Principal Variation Search, one per ply. The search's cutoffs
+	// are strict (beta < alpha), so a null window is alpha == beta, set to the best
+	// value found so far at the node it is used from.
+	private Node[] windows;
+
+	// Two killer moves per ply: quiet moves that recently caused a cutoff at that
+	// ply, tried straight after the captures. killers[ply][0] is the newest.
+	private int[][] killers;
+
+	// The history table scores quiet moves by how often, and how deep, they have caused
+	// a cutoff anywhere in the tree; the counter move table remembers the quiet move
+	// that last refuted each move. Both are indexed by colour (0 = black, 1 = white),
+	// then by MovePicker#index(int) of the move (or of the move being answered).
+	private int[][] history, counters;
+
+	// history scores are halved when one passes this, keeping recent cutoffs weightier
+	private static final int HISTORY_MAX = 1<<20;
+
+	// Results of earlier searches, kept from move to move (see TranspositionTable).
+	private TranspositionTable tt;
+
+	// Number of threads searching each move (see #setThreads(int)). A helper's search
+	// is stopped by the Computer that started it setting halted.
+	private int threads;
+	private volatile boolean halted;
 	
 	/**
 	 * Initiallizes colour indices (for Board.pieces) and main variables.
@@ -38,10 +140,21 @@ public class Computer implements PlayerInterface {
 	 * @param  b          the Board to play on
 	 * @param  colour     our colour
 	 * @param  simpleEval whether to use the simple (fast) evaluation function or complex (better) one
-	 * @param  maxDepth   maximum search tree depth (except in complex evaluation's endgame)
+	 * @param  maxDepth   maximum search tree depth (except in complex evaluation's endgame),
+	 *                    unless a time per move is set (see #setMoveTime(int))
 	 */
 	//public Computer (Board b, Colour colour, Boolean simpleEval, int maxDepth) {
 	public Computer (Board b, Colour colour, Boolean simpleEval, int maxDepth) {
+		this(b,colour,simpleEval,maxDepth,new Scanner(System.in));
+	}
+
+	/**
+	 * As the public constructor, but leaves the console alone, so that helpers
+	 * (see #helper()) can be made for every search.
+	 * 
+	 * @param  in  reads from the console, or null for a helper
+	 */
+	private Computer (Board b, Colour colour, Boolean simpleEval, int maxDepth, Scanner in) {
 		this.b = b;
 		this.colour = colour;
 		this.simpleEval = simpleEval;
@@ -61,7 +174,13 @@ public class Computer implements PlayerInterface {
 		mHi = mLow+16;
 		tHi = tLow+16;
 
-		in = new Scanner(System.in);
+		random = new Random(ThreadLocalRandom.current().nextLong());
+		quiesce = true;
+		evasions = true;
+		pruning = new boolean[] {true, true, true, true};
+		margins = DEFAULT_MARGINS.clone();
+		threads = 1;
+		this.in = in;
 	}
 
 	/**
@@ -72,36 +191,125 @@ public class Computer implements PlayerInterface {
 	public Colour getColour() {
 		return colour;
 	}
+
+	/**
+	 * Make the choice between equally good moves repeatable: two Computers given
+	 * the same seed search the same position in exactly the same way.
+	 * 
+	 * @param seed  seed for the tie-breaking random numbers
+	 */
+	public void setSeed (long seed) {
+		random = new Random(seed);
+	}
+
+	/**
+	 * @return the number of positions reached by the last search, counting
+	 *         every move made (leaves included) by every thread
+	 */
+	public long getNodes () {
+		return nodes;
+	}
+
+	/**
+	 * Search for a fixed time rather than to a fixed depth. The search deepens one
+	 * ply at a time until the time is up, so the move comes back within about that
+	 * long whatever the position.
+	 * 
+	 * @param millis  time per move in milliseconds, or zero to search to maxDepth
+	 */
+	public void setMoveTime (int millis) {
+		moveTime = millis;
+	}
+
+	/**
+	 * Choose how the leaves of the search are scored.
+	 * 
+	 * @param quiesce  search captures and promotions past the leaves until the
+	 *                 position is quiet (on by default); if false, the leaves are
+	 *                 simply evaluated
+	 * @param evasions  in quiescence search, search every reply to a check rather
+	 *                  than standing pat (on by default)
+	 */
+	public void setQuiescence (boolean quiesce, boolean evasions) {
+		this.quiesce = quiesce;
+		this.evasions = evasions;
+	}
+
+	/**
+	 * Configure one forward pruning technique. Each skips moves or whole nodes near
+	 * the leaves that the static evaluation says cannot matter, so each saves nodes
+	 * at some risk of missing a move that would.
+	 * 
+	 * @param technique  FUTILITY (quiet moves one ply above the leaves), REVERSE_FUTILITY
+	 *                   (nodes far enough past the window, the "static null move"),
+	 *                   RAZORING (nodes two plies above the leaves far short of the
+	 *                   window, checked with quiescence search) or DELTA (captures in
+	 *                   quiescence search that cannot reach the window)
+	 * @param on  whether to use it
+	 * @param margin  how far past the window, in pawns, the evaluation must be;
+	 *                larger is safer and prunes less (see DEFAULT_MARGINS)
+	 */
+	public void setPruning (int technique, boolean on, int margin) {
+		pruning[technique] = on;
+		margins[technique] = margin;
+	}
+
+	/**
+	 * Search with more than one thread (Lazy SMP). Each extra thread runs a search of
+	 * its own from the same position, on its own Board and with its own move ordering
+	 * tables, every other one a ply deeper than this one. They share nothing but the
+	 * transposition table, where each finds the others' results; that both speeds
+	 * them up and, with the deeper iterations and different orderings, sends them
+	 * down different lines. This thread still decides the move and when to stop, and
+	 * the helpers stop with it.
+	 * 
+	 * @param n  number of threads, one (the default) for a single-threaded search
+	 */
+	public void setThreads (int n) {
+		threads = Math.max(1,n);
+	}
+
+	/**
+	 * Replace the transposition table with an empty one of a new size.
+	 * 
+	 * @param megabytes  approximate table size
+	 */
+	public void setHashSize (int megabytes) {
+		tt = new TranspositionTable(megabytes);
+	}
 	
 	/** Dispatch minimax, parse result, move */
 	public void makeMove() {
 		System.out.println("starting MiniMax");
 
-		// detect states if desired
+		// detect states if desired, and look further ahead in an endgame
+		int depth = (moveTime > 0) ? MAX_DEPTH : maxDepth;
 		if (!simpleEval) {
 			detectState();
-			if (endgame) { maxDepth += 2; }
+			if (endgame && moveTime == 0) { depth += 2; }
 		}
 
 		// search
-		byte[] out = root();
-
-		// parse and print move out to console
-		char currentChar = (char) (((56&out[0])>>3)+65);
-		char nextChar = (char) (((56&out[1])>>3)+65);
-		System.out.print(currentChar);
-		System.out.print((char)((7&out[0])+49));
-		System.out.print("-");
-		System.out.print(nextChar);
-		System.out.println((char)((7&out[1])+49));
+		long start = System.nanoTime();
+		int out = root(depth,moveTime);
+		long ms = (System.nanoTime()-start)/1000000;
+		System.out.println("depth " + lastDepth + ", score " + lastScore + ", " + nodes + " nodes, " + ms + " ms");
 
 		// handle end states so as not to confuse the user
-		if (out[0] == -128) {
-			b.gameOver = "X";
-		} else if (b.boardMove(this,out[0],out[1]) &&
-			!b.checkCheck(colour,out[0],out[1])) {
-				b.undoMove();
+		if (out == Move.NONE) {
+			if (b.gameOver.equals(""))
+				b.gameOver = "X";
+			return;
 		}
+
+		// print move out to console
+		System.out.println(Move.toString(out));
+
+		// the move is legal, checkCheck() only records who is now in check
+		byte current = b.pieces[Move.piece(out)];
+		byte next = (byte) (-64&current | Move.to(out));
+		b.boardMove(out);
+		b.checkCheck(colour,current,next);
 	}
 
 	/**
@@ -113,13 +321,12 @@ public class Computer implements PlayerInterface {
 	public class Node {
 		Node parent;
 		int alpha,beta,value;
-		boolean blackInCheck, whiteInCheck, firstVal;
+		boolean firstVal;
 
 		/** Root node constructor */
 		public Node () {
 			alpha = Integer.MIN_VALUE;
 			beta = Integer.MAX_VALUE;
-			getChecks();
 			firstVal = true;
 		}
 
@@ -128,16 +335,9 @@ public class Computer implements PlayerInterface {
 			parent = p;
 			alpha = p.alpha;
 			beta = p.beta;
-			getChecks();
 			firstVal = true;
 		}
 
-		/** Check is used to determine end game states (stale and mates) */
-		public void getChecks () {
-			blackInCheck = b.calcCheck(Colour.BLACK);
-			whiteInCheck = b.calcCheck(Colour.WHITE);
-		}
-
 		/**
 		 * Update alpha and/or value. Calls updateAlpha(int)
 		 * 
@@ -148,19 +348,19 @@ public class Computer implements PlayerInterface {
 		}
 
 		/**
-		 * Update value if it is the first time this node
-		 * has been evaluated. Update both alpha and value
-		 * if v > alpha.
+		 * Keep value at the best (highest) child value seen,
+		 * and raise alpha to it. Values outside the window are
+		 * kept too (fail-soft), so a value at or below the
+		 * starting alpha is an upper bound and one above beta
+		 * a lower bound, which null window searches rely on.
 		 * 
 		 * @param v, child node's value
 		 */
 		public void updateAlpha (int v) {
-			if (v > alpha) {
+			if (v > alpha)
 				alpha = v;
+			if (firstVal || v > value)
 				value = v;
-			} else if (firstVal) {
-				value = v;
-			}
 			firstVal = false;
 		}
 
@@ -174,36 +374,118 @@ public class Computer implements PlayerInterface {
 		}
 
 		/**
-		 * Update value if it is the first time this node 
-		 * has been evaluated. Update both beta and value
-		 * if v < beta.
+		 * Keep value at the best (lowest) child value seen,
+		 * and lower beta to it. As in updateAlpha(int), values
+		 * outside the window are kept.
 		 * 
 		 * @param v, child node's value
 		 */
 		public void updateBeta (int v) {
-			if (v < beta) {
+			if (v < beta)
 				beta = v;
+			if (firstVal || v < value)
 				value = v;
-			} else if (firstVal) {
-				value = v;
-			}
 			firstVal = false;
 		}
 	}
 
-	/** Helper class: organizes a node's possible moves (to reduces code duplication) */
-	public class Piece {
-		byte current;
-		byte[] nexts;
-		int[] evals;
+	/**
+	 * Make sure there is a MovePicker and killer slots for every ply of a search, and
+	 * history and counter move tables.
+	 * 
+	 * @param depth  the deepest the search can go
+	 */
+	private void ensureBuffers (int depth) {
+		if (rootMoves == null)
+			rootMoves = new int[Board.MAX_MOVES];
+		if (tt == null)
+			tt = new TranspositionTable(TranspositionTable.DEFAULT_MB);
+		if (history == null) {
+			history = new int[2][4096];
+			counters = new int[2][4096];
+		}
+		if (pickers == null || pickers.length < depth+1) {
+			pickers = new MovePicker[depth+1];
+			windows = new Node[depth+1];
+			for (int i = 0; i < pickers.length; i++) {
+				pickers[i] = new MovePicker(b,history);
+				windows[i] = new Node();
+			}
+			killers = new int[depth+1][2];
+		}
+	}
+
+	/**
+	 * Remember a quiet move that caused a cutoff, so that it is tried early elsewhere
+	 * in the tree: as a killer at the same ply, as the counter to the move it answered,
+	 * and through its history score everywhere. Captures are ordered well enough by
+	 * MVV-LVA, so they are not remembered.
+	 * 
+	 * @param ply  depth of the node the move was made from
+	 * @param depth  plies left to search below the node
+	 * @param move  the move (see Chess.Move)
+	 * @param previous  the move that led to the node
+	 * @param c  the colour that made move
+	 */
+	private void storeCutoff (int ply, int depth, int move, int previous, Colour c) {
+		if (!MovePicker.isQuiet(move))
+			return;
+		if (killers[ply][0] != move) {
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = move;
+		}
 
-		/** Get the piece's mechanically possible moves on creation */
-		public Piece (int i) {
-			current = b.pieces[i];
-			nexts = b.getPiece(i).getMoves(b.pieces[i]);
+		int side = (c == Colour.BLACK) ? 0 : 1;
+		counters[side][MovePicker.index(previous)] = move;
+
+		// deep cutoffs save the most work, so count for the most
+		int[] table = history[side];
+		table[MovePicker.index(move)] += depth*depth;
+		if (table[MovePicker.index(move)] > HISTORY_MAX) {
+			for (int i = 0; i < table.length; i++)
+				table[i] >>= 1;
 		}
 	}
 
+	/**
+	 * @param previous  the move that led to a node
+	 * @param c  the colour to move at the node
+	 * @return the stored reply to previous, or Move.NONE
+	 */
+	private int counterMove (int previous, Colour c) {
+		return counters[(c == Colour.BLACK) ? 0 : 1][MovePicker.index(previous)];
+	}
+
+	/**
+	 * Mates and stalemates are scored by their distance from the root, but a table
+	 * entry may be found again at a different distance. They are stored relative
+	 * to the node instead, and turned back on the way out by #fromTable(int,int).
+	 * 
+	 * @param score  a score, relative to the root
+	 * @param ply  depth of the node
+	 * @return the score to store
+	 */
+	private static int toTable (int score, int ply) {
+		if (score > DECIDED)
+			return score + ply/2;
+		if (score < -DECIDED)
+			return score - ply/2;
+		return score;
+	}
+
+	/**
+	 * @param score  a score read from the table
+	 * @param ply  depth of the node
+	 * @return the score relative to the root
+	 */
+	private static int fromTable (int score, int ply) {
+		if (score > DECIDED)
+			return score - ply/2;
+		if (score < -DECIDED)
+			return score + ply/2;
+		return score;
+	}
+
 	/**
 	 * Attempt to detect opening/middle/endgame states. This may not reflect the classical chess
 	 * states (especially openings, which can be defined for 10+ moves), but is extremely helpful
@@ -211,7 +493,7 @@ public class Computer implements PlayerInterface {
 	 * "Middlegame" is over when there are less than 7 pieces on the board. This method sets the
 	 * values of the opening and endgame booleans.
 	 */
-	private void detectState () {
+	void detectState () {
 		opening = true;
 		endgame = false;
 		int pieceCount = 0;
@@ -267,94 +549,299 @@ public class Computer implements PlayerInterface {
 		}
 	}
 
+	/**
+	 * Iterative deepening: search the root to depth one, then two, and so on. Each
+	 * iteration is cheap next to the one after it, and leaves its best moves in the
+	 * transposition table (and killer slots) to be tried first by the next, so
+	 * nothing much is lost by starting shallow. With a time budget, no iteration is
+	 * started once half of it has gone (the next would not finish), and one still
+	 * running when the budget runs out is abandoned. The move chosen is that of the
+	 * last iteration to complete. Helper threads, if any (see #setThreads(int)),
+	 * search until this thread is done.
+	 * 
+	 * @param depth  deepest iteration to run
+	 * @param millis  time budget, or zero to always reach depth
+	 * @return the chosen move (see Chess.Move), or Move.NONE if there is none
+	 */
+	int root (int depth, int millis) {
+		long start = System.nanoTime();
+		long soft = (millis > 0) ? start + millis*500000L : 0L;
+		deadline = (millis > 0) ? start + millis*1000000L : 0L;
+		prepare(depth);
+		tt.newSearch();
+
+		Computer[] helpers = new Computer[threads-1];
+		Thread[] workers = new Thread[threads-1];
+		for (int i = 0; i < helpers.length; i++) {
+			helpers[i] = helper();
+			workers[i] = new Thread(new Helper(helpers[i],1+(1&i)),"search helper " + (i+1));
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+
+		int out = deepen(1,depth,soft);
+
+		for (int i = 0; i < helpers.length; i++) {
+			helpers[i].halted = true;
+			try {
+				workers[i].join();
+			} catch (InterruptedException e) { }
+			nodes += helpers[i].nodes;
+		}
+		return out;
+	}
+
+	/**
+	 * Get ready for a new search: make room for it, and forget the killer moves and
+	 * most of the history scores of the last one.
+	 * 
+	 * @param depth  deepest iteration to be run
+	 */
+	private void prepare (int depth) {
+		stopped = false;
+		nodes = 0;
+
+		ensureBuffers(depth+QUIESCENCE_PLIES);
+		for (int[] k : killers)
+			k[0] = k[1] = Move.NONE;
+		for (int[] table : history) {
+			for (int i = 0; i < table.length; i++)
+				table[i] >>= 2; // keep a little of what the last search learned
+		}
+	}
+
+	/**
+	 * The iterations of #root(int,int), until depth is reached, the result is
+	 * forced, or the search is stopped.
+	 * 
+	 * @param first  first iteration to run
+	 * @param depth  deepest iteration to run
+	 * @param soft  no iteration is started after this (System.nanoTime()), zero for never
+	 * @return the move chosen by the last iteration to complete, or Move.NONE
+	 */
+	private int deepen (int first, int depth, long soft) {
+		int out = Move.NONE;
+		for (int iteration = first; iteration <= depth; iteration++) {
+			// Aspiration window: the score is unlikely to move far from the last
+			// iteration's, and a narrow window cuts off more. If the score lands outside
+			// it, widen that side and search again.
+			int alpha = Integer.MIN_VALUE, beta = Integer.MAX_VALUE, window = ASPIRATION;
+			if (iteration > first && lastScore < DECIDED && lastScore > -DECIDED) {
+				alpha = lastScore-window;
+				beta = lastScore+window;
+			}
+			int move;
+			for ( ; ; ) {
+				move = root(iteration,alpha,beta);
+				if (stopped || move == Move.NONE)
+					break;
+				window *= 4;
+				if (lastScore < alpha)
+					alpha = (window > ASPIRATION_MAX) ? Integer.MIN_VALUE : lastScore-window;
+				else if (lastScore > beta)
+					beta = (window > ASPIRATION_MAX) ? Integer.MAX_VALUE : lastScore+window;
+				else
+					break;
+			}
+			if (stopped)
+				break;
+			out = move;
+			lastDepth = iteration;
+			if (out == Move.NONE || lastScore > DECIDED || lastScore < -DECIDED)
+				break; // no moves, or the result is forced
+			if (soft != 0 && System.nanoTime() > soft)
+				break;
+		}
+		return out;
+	}
+
+	/**
+	 * A Computer to search alongside this one on another thread (see #setThreads(int)):
+	 * the same settings and transposition table, but a Board and move ordering
+	 * tables of its own.
+	 * 
+	 * @return the helper, ready to search the current position
+	 */
+	private Computer helper () {
+		Computer h = new Computer(new Board(b.getPosition()),colour,simpleEval,maxDepth,null);
+		h.tt = tt;
+		h.opening = opening;
+		h.endgame = endgame;
+		h.quiesce = quiesce;
+		h.evasions = evasions;
+		h.pruning = pruning.clone();
+		h.margins = margins.clone();
+		h.prepare(MAX_DEPTH);
+		return h;
+	}
+
+	/**
+	 * Runs a helper Computer's search on its own thread, deepening until it is
+	 * halted. Helpers alternate between starting at depth one and two, so half of
+	 * them are always a ply ahead of the other half.
+	 */
+	private static class Helper implements Runnable {
+		private Computer computer;
+		private int first;
+
+		/**
+		 * @param computer  from #helper()
+		 * @param first  its first iteration
+		 */
+		Helper (Computer computer, int first) {
+			this.computer = computer;
+			this.first = first;
+		}
+
+		public void run () {
+			computer.deepen(first,MAX_DEPTH,0L);
+		}
+	}
+
 	/**
 	 * Root node for the minimax search tree, checks each possible move fron current state. Alpha-
 	 * Beta pruning is used to cut down search. If more than one move is found to be optimal, selects 
-	 * a random best move. If an endgame state is detected (stale or mate), the Board's gameOver string
+	 * a random best move. If there is no legal move (stale or mate), the Board's gameOver string
 	 * is set to a non-empty string.
 	 * 
-	 * @return byte[] of length two, corresponding to the current and desired location of a piece
-	 *                (Board.pieces[x] can be directly replaced with second byte).
+	 * The moves are searched with Principal Variation Search. The first move (the
+	 * best of the last iteration) is searched with the full window. Each of the others
+	 * is first searched with a null window, which only proves whether it is worse than
+	 * the best so far. That is much cheaper, and only a move that is not worse is
+	 * searched again to get its value. Ties are searched again too, as they need
+	 * exact values to be chosen between.
+	 * 
+	 * @param depth  plies to search
+	 * @param alpha  lower end of the window: moves scoring under it are only known
+	 *               to score under it
+	 * @param beta  upper end of the window: moves scoring over it are only known
+	 *              to score over it
+	 * @return the chosen move (see Chess.Move), or Move.NONE if there is none or
+	 *         the search was stopped. lastScore is set to the best score, if it is
+	 *         outside the window the search should be repeated with a wider one
 	 */
-	private byte[] root () {
-		Piece[] pieces = new Piece[16];
+	private int root (int depth, int alpha, int beta) {
 		Node node = new Node();
+		node.alpha = alpha;
+		node.beta = beta;
+		searchDepth = depth;
 
 		// we only care about castling if we have not done so already
-		flags = (byte) (flagsMask&CastleSync.getFlags());
+		flags = (byte) (flagsMask&b.getCastleFlags());
 
 		Dispatch d = new Dispatch();
 
-		for (int i = 0; i < 16; i++) {
-			if ((64&b.pieces[i+mLow]) == 64) {
-				pieces[i] = new Piece(i+mLow);
-				pieces[i].evals = new int[pieces[i].nexts.length];
-				int a = 0;
-				while (pieces[i].nexts[a] != 0) {
-					pieces[i].evals[a] = oddDepth(node, pieces[i].current, pieces[i].nexts[a], d);
-					if (pieces[i].evals[a] > (-100-STALE) && pieces[i].evals[a] <= (0-STALE)) // LIMIT DEPTH TO 100
-						pieces[i].evals[a] = pieces[i].evals[a] * -1;						
-					node.updateAlpha(pieces[i].evals[a]);
-					a++;
-				}
+		// generate every root move up front, they are all searched
+		int[] list = rootMoves;
+		int moves = b.generateLegalMoves(colour,list,0);
+		if (moves == 0) {
+			b.gameOver = b.isSquareAttacked(63&b.pieces[mLow],tc) ? "Human wins!" : "Stalemate";
+			return Move.NONE;
+		}
+
+		// the best move of the last iteration (or search) from here goes first
+		long key = b.getHash();
+		int hashMove = TranspositionTable.move(tt.probe(key));
+		for (int a = 1; a < moves; a++) {
+			if (list[a] == hashMove) {
+				list[a] = list[0];
+				list[0] = hashMove;
+				break;
+			}
+		}
+
+		Node window = windows[0];
+		int[] evals = new int[moves];
+		int stored = Integer.MIN_VALUE; // the best score before stalemates are flipped
+		for (int a = 0; a < moves; a++) {
+			if (a == 0 || node.alpha == Integer.MIN_VALUE) {
+				evals[a] = oddDepth(node, list[a], d);
+			} else {
+				window.alpha = window.beta = node.alpha;
+				evals[a] = oddDepth(window, list[a], d);
+				if (!stopped && evals[a] >= node.alpha)
+					evals[a] = oddDepth(node, list[a], d);
 			}
+			if (stopped)
+				return Move.NONE;
+			stored = Math.max(stored,evals[a]);
+			if (evals[a] > (-100-STALE) && evals[a] <= (0-STALE)) // LIMIT DEPTH TO 100
+				evals[a] = evals[a] * -1;
+			node.updateAlpha(evals[a]);
 		}
 
 		// find the highest eval
-		Random rand = new Random(ThreadLocalRandom.current().nextInt());
-		byte[] out = new byte[2];
+		int best = Integer.MIN_VALUE;
+		for (int a = 0; a < moves; a++)
+			best = Math.max(best,evals[a]);
+		int out = Move.NONE;
 		int count = 0;
-		outer:
-		for (int i = 0; i < 16; i++) {
-			int a = 0;
-			while (pieces[i] != null && pieces[i].nexts[a] != 0) {
-				if (pieces[i].evals[a] == node.alpha) {
-					count++;
-					if (rand.nextDouble() < (1.0/count)) {
-						out[0] = pieces[i].current;
-						out[1] = pieces[i].nexts[a];
-					}
-				}
-				a++;
+		for (int a = 0; a < moves; a++) {
+			if (evals[a] == best) {
+				count++;
+				if (random.nextDouble() < (1.0/count))
+					out = list[a];
 			}
 		}
+		lastScore = best;
+
+		// the root is stored as evenDepth() would store it, so the score is taken from
+		// before stalemates were flipped, and is only a bound if it fell outside the window
+		int bound = (stored > beta) ? TranspositionTable.LOWER
+			: (stored < alpha) ? TranspositionTable.UPPER : TranspositionTable.EXACT;
+		tt.store(key,depth,bound,toTable(stored,0),out);
 
 		// debugging
 		//System.out.println(count);
 		//System.out.println(node.alpha);
 
-		if (node.alpha == WIN) {
-			b.gameOver = "Computer wins!";
-		} else if (node.alpha == (0-WIN)) {
-			b.gameOver = "Human wins!";
-		} else if (node.alpha == STALE) {
-			b.gameOver = "Stalemate";
-		}
-		
 		return out;
 	}
 
+	/**
+	 * Called for every node searched. Looks at the clock now and then, and once the
+	 * deadline has passed marks the search as stopped. The first iteration always
+	 * runs to the end, so there is a move to play. A helper thread's search (see
+	 * #setThreads(int)) is stopped once it has been halted.
+	 * 
+	 * @return true if the search should unwind without storing anything
+	 */
+	private boolean checkTime () {
+		if ((1023&nodes) == 0 && (halted || (deadline != 0 && searchDepth > 1 && System.nanoTime() > deadline)))
+			stopped = true;
+		return stopped;
+	}
+
 	/**
 	 * Holds node depth and evaluates board with proper function based
 	 * on the user's wishes. Node's must track their own depth by
-	 * calling downOne() and upOne() appropriately.
+	 * calling downOne() and upOne() appropriately. A reduced search
+	 * (a null move, or a late move) adds to reduced rather than to curDepth, so
+	 * curDepth is always the distance from the root.
 	 */
 	public class Dispatch {
 		public int curDepth; // the current depth
+		public int reduced; // plies taken off the search below the root
 
 		/** Root node is at depth zero. */
 		public Dispatch () {
 			curDepth = 0;
+			reduced = 0;
 		}
 
 		/**
 		 * Increment curDepth, detect leaf node
 		 * 
-		 * @return true if leaf node (curDepth >= maxDepth)
+		 * @return true if leaf node (no plies left, see #depth())
 		 */
 		public boolean downOne () {
 			curDepth += 1;
-			return (curDepth >= maxDepth) ? true : false;
+			return (depth() <= 0) ? true : false;
+		}
+
+		/** @return plies left to search below the current node */
+		public int depth () {
+			return searchDepth-reduced-curDepth;
 		}
 
 		/** Decrement curDepth */
@@ -391,74 +878,353 @@ public class Computer implements PlayerInterface {
 	}
 
 	/**
-	 * Catch end game states (win, loss, stalemate) that result from my moves. We cannot detect a win on 
-	 * our move; we win only when the opponent loses (has no valid moves). This requires that depth >= 2, 
-	 * but greatly speeds up execution. The report contains more information on this decision.
+	 * Score a node whose side to move has no legal moves. Mates and stalemates
+	 * found nearer the root are preferred to those found deeper (see
+	 * Dispatch#lookAhead()). A stalemate with them to move returns a positive
+	 * value, as it is assumed bad for the opponent as well; the root node flips
+	 * it back to negative.
 	 * 
-	 * @param n  the current node 
-	 * @return zero if non-end game state, 0-WIN if loss, and STALE if stalemate
+	 * @param mine  true if we are the side with no moves
+	 * @param d     for keeping track of depth, at the parent's depth
+	 * @return      0-WIN or STALE if we have no moves, WIN or 0-STALE if they have none
 	 */
-	private int checkMyMoves (Node n) {
-		if (colour == Colour.BLACK) {
-			if (n.blackInCheck) {
-				if (n.parent.blackInCheck) { return (0-WIN); }
-				return STALE;
-			}
+	private int noMoves (boolean mine, Dispatch d) {
+		if (mine) {
+			if (b.isSquareAttacked(63&b.pieces[mLow],tc)) { return (0-WIN) + d.lookAhead(); }
+			return STALE + d.lookAhead();
+		}
+		if (b.isSquareAttacked(63&b.pieces[tLow],colour)) { return WIN - d.lookAhead(); }
+		return (0-STALE) - d.lookAhead();
+	}
+
+	/**
+	 * Quiescence search, run in place of the evaluation function at the leaves. A
+	 * leaf may be halfway through an exchange, with a piece hanging or a recapture
+	 * to come, where the evaluation would be badly wrong. So from the leaf only
+	 * captures and promotions are searched, until the position is quiet. The side to
+	 * move can always stand pat (decline to capture) and take the evaluation instead,
+	 * so that is where each node starts, and captures that lose material (by
+	 * Board#see(int)) are not tried. When in check there is no standing pat, and
+	 * every move is searched (if check evasions are switched on, see
+	 * #setQuiescence(boolean,boolean)). This is a hot path, so nodes are plain
+	 * ints rather than Node objects; the cutoffs are the same as theirs.
+	 * 
+	 * @param  mine   true if it is our move (a maximizing node), false if theirs
+	 * @param  alpha  the parent's alpha
+	 * @param  beta   the parent's beta
+	 * @param  d      for keeping track of depth, at this node's depth
+	 * @return        the utility of the position
+	 */
+	private int quiescence (boolean mine, int alpha, int beta, Dispatch d) {
+		if (!quiesce || d.depth() <= -QUIESCENCE_PLIES)
+			return d.eval();
+
+		Colour c = mine ? colour : tc;
+		boolean inCheck = evasions && (mine ? b.isSquareAttacked(63&b.pieces[mLow],tc)
+			: b.isSquareAttacked(63&b.pieces[tLow],colour));
+
+		// stand pat: the value if no capture is made
+		int stand = 0, best;
+		if (inCheck) {
+			best = mine ? Integer.MIN_VALUE : Integer.MAX_VALUE;
 		} else {
-			if (n.whiteInCheck) {
-				if (n.parent.whiteInCheck) { return (0-WIN); }
-				return STALE;
+			stand = d.eval();
+			if (mine ? stand > beta : stand < alpha)
+				return stand;
+			best = stand;
+			if (mine && stand > alpha)
+				alpha = stand;
+			else if (!mine && stand < beta)
+				beta = stand;
+		}
+
+		MovePicker picker = pickers[d.curDepth];
+		picker.resetQuiescence(c,inCheck);
+		int move, moves = 0;
+		while ((move = picker.next()) != Move.NONE) {
+			moves++;
+
+			// delta pruning: skip a capture that would not reach alpha (or beta) even
+			// if the piece were won for nothing
+			if (!inCheck && pruning[DELTA] && (mine ? stand+gain(move)+margins[DELTA] < alpha
+					: stand-gain(move)-margins[DELTA] > beta))
+				continue;
+
+			// and one that loses material once the recaptures are done
+			if (!inCheck && Move.isCapture(move) && b.see(move) < 0)
+				continue;
+
+			b.boardMove(move);
+			nodes++;
+			if (checkTime()) {
+				b.undoMove();
+				return 0;
+			}
+			d.downOne();
+			int v = quiescence(!mine,alpha,beta,d);
+			d.upOne();
+			b.undoMove();
+			if (stopped)
+				return 0;
+
+			if (mine) {
+				if (v > best)
+					best = v;
+				if (v > alpha)
+					alpha = v;
+			} else {
+				if (v < best)
+					best = v;
+				if (v < beta)
+					beta = v;
 			}
+			if (beta < alpha)
+				break;
 		}
-		return 0;
+
+		if (inCheck && moves == 0) {
+			d.upOne();
+			int out = noMoves(mine,d);
+			d.downOne();
+			return out;
+		}
+		return best;
+	}
+
+	/**
+	 * @param move  a capture or promotion
+	 * @return the most material it could win: the captured piece plus whatever
+	 *         the pawn becomes
+	 */
+	private int gain (int move) {
+		int out = 0;
+		if (Move.isCapture(move))
+			out = Board.SEE_VALUES[Board.typeOf(b.pieceNames[Move.captured(move)])];
+		if (Move.promotion(move) != 0)
+			out += Board.SEE_VALUES[Move.promotion(move)] - 1;
+		return out;
 	}
 
 	/**
-	 * A minimizing node. Attempts to move a piece from current to next. If successful,
-	 * it checks for badMoves (end states, in which case it returns), checks if it is a leaf
-	 * node (in which case it evaluates the position and returns), and finally generates all
-	 * possible moves and calls evenDepth(Node,byte,byte,Dispatch) to recurse down.
+	 * Make a move for oddDepth(Node,int,Dispatch) or evenDepth(Node,int,Dispatch).
 	 * 
-	 * @param  parent  the parent node, needed to detect badMoves
-	 * @param  current a piece's current position
-	 * @param  next    the piece's desired next position
-	 * @param  d       for keeping track of depth
-	 * @return         the utility of the move from current to next
+	 * @param move  the move (see Chess.Move), or Move.NONE to pass (a null move)
+	 * @return true unless castling failed
 	 */
-	private int oddDepth (Node parent, byte current, byte next, Dispatch d) {
-		if (b.boardMove(this,current,next)) {
+	private boolean make (int move) {
+		if (move == Move.NONE) {
+			b.makeNullMove();
+			return true;
+		}
+		return b.boardMove(move);
+	}
 
-			Piece[] pieces = new Piece[16];
-			Node node = new Node(parent);
+	/**
+	 * Take back a move made by #make(int).
+	 * 
+	 * @param move  the move, or Move.NONE if it was a null move
+	 */
+	private void unmake (int move) {
+		if (move == Move.NONE)
+			b.undoNullMove();
+		else
+			b.undoMove();
+	}
 
-			int badMove = checkMyMoves(node);
-			if (badMove != 0) {
-				b.undoMove();
-				return badMove + d.lookAhead();
+	/**
+	 * Null move pruning is unsafe in zugzwang, where any move makes things worse and
+	 * passing would not; that is likeliest when only the king and pawns are left.
+	 * 
+	 * @param king  Board.pieces index of the side's king (mLow or tLow)
+	 * @return true if the side has a piece other than its king and pawns
+	 */
+	private boolean hasPieces (int king) {
+		int side = (king == 0) ? 0 : 1;
+		return (b.colourBoards[side] & ~(b.pieceBoards[side][Board.KING] | b.pieceBoards[side][Board.PAWN])) != 0;
+	}
+
+	/**
+	 * @param depth  plies left to search below the node
+	 * @return how many plies shallower the null move is searched
+	 */
+	private static int nullReduction (int depth) {
+		return (depth > NULL_MOVE_DEEP) ? 3 : 2;
+	}
+
+	/**
+	 * Late move reductions: with good move ordering, a quiet move that comes late at
+	 * a node is rarely the best, so it is first searched less deeply. Captures,
+	 * promotions, checks and check evasions are searched to full depth.
+	 * 
+	 * @param depth  plies left to search below the node
+	 * @param moves  how many moves the node has tried, including this one
+	 * @param move  the move (see Chess.Move)
+	 * @param inCheck  whether the side to move at the node is in check
+	 * @return how many plies shallower to search move, zero for full depth
+	 */
+	private int reduction (int depth, int moves, int move, boolean inCheck) {
+		if (moves <= LMR_MOVES || depth < LMR_DEPTH || inCheck || !MovePicker.isQuiet(move))
+			return 0;
+		int r = LMR[Math.min(depth,MAX_DEPTH)][Math.min(moves,63)];
+		if (r == 0 || b.givesCheck(move))
+			return 0;
+		return r;
+	}
+
+	/**
+	 * A minimizing node. Makes our move, checks if it is a leaf node (in which case it
+	 * evaluates the position and returns), then takes their legal moves from a MovePicker
+	 * and calls evenDepth(Node,int,Dispatch) to recurse down. If they have no legal move, the
+	 * position is scored as a mate or stalemate. Before their moves, letting them pass
+	 * (a null move, searched less deeply) may already show we cannot get over alpha.
+	 * 
+	 * @param  parent  the parent node
+	 * @param  move    the move to make (see Chess.Move), or Move.NONE to pass
+	 * @param  d       for keeping track of depth
+	 * @return         the utility of the move
+	 */
+	private int oddDepth (Node parent, int move, Dispatch d) {
+		if (make(move)) {
+			nodes++;
+			if (checkTime()) {
+				unmake(move);
+				return 0;
 			}
 
+			Node node = new Node(parent);
+
 			if (d.downOne()) {
-				int out = d.eval();
-				b.undoMove();
+				int out = quiescence(false,node.alpha,node.beta,d);
+				unmake(move);
 				d.upOne();
 				return out;
 			}
 
-			outer:
-			for (int i = 0; i < 16; i++) {
-				if ((64&b.pieces[i+tLow]) == 64) {
-					pieces[i] = new Piece(i+tLow);
-					int a = 0;
-					while (pieces[i].nexts[a] != 0) {
-						node.updateBeta(evenDepth(node, pieces[i].current, pieces[i].nexts[a], d));
-						if (node.beta < node.alpha)
-							break outer;
-						a++;
+			// a result from the table may settle the node without searching it
+			int ply = d.curDepth;
+			long key = b.getHash();
+			long entry = tt.probe(key);
+			int depth = d.depth();
+			if (entry != 0 && TranspositionTable.depth(entry) >= depth) {
+				int score = fromTable(TranspositionTable.score(entry),ply);
+				int bound = TranspositionTable.bound(entry);
+				if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.UPPER && score < node.alpha)
+						|| (bound == TranspositionTable.LOWER && score > node.beta)) {
+					unmake(move);
+					d.upOne();
+					return score;
+				}
+			}
+
+			boolean inCheck = b.isSquareAttacked(63&b.pieces[tLow],colour);
+
+			// forward pruning near the leaves, judged by the static evaluation (see
+			// #setPruning(int,boolean,int))
+			int eval = 0;
+			boolean futile = false;
+			if (!inCheck && depth <= PRUNING_DEPTH && node.alpha > -DECIDED && node.beta < DECIDED) {
+				eval = d.eval();
+				// reverse futility: so far under alpha that none of our replies would get back
+				int margin = margins[REVERSE_FUTILITY]*depth;
+				if (pruning[REVERSE_FUTILITY] && eval+margin < node.alpha) {
+					unmake(move);
+					d.upOne();
+					return eval+margin;
+				}
+				// razoring: well over beta a ply before the frontier, so only look at captures;
+				// if they do not get under beta either, nothing will
+				if (pruning[RAZORING] && depth == 2 && eval-margins[RAZORING] > node.beta) {
+					int v = quiescence(false,node.alpha,node.beta,d);
+					if (stopped || v > node.beta) {
+						unmake(move);
+						d.upOne();
+						return stopped ? 0 : v;
 					}
 				}
+				// futility: at the frontier, a quiet reply cannot get under beta from here
+				futile = pruning[FUTILITY] && depth == 1 && eval-margins[FUTILITY] > node.beta;
 			}
 
-			b.undoMove();
+			// null move: if they pass and we still cannot get back over alpha, one of
+			// their moves would surely keep us under it too
+			if (move != Move.NONE && node.alpha > -DECIDED && depth >= NULL_MOVE_DEPTH
+					&& hasPieces(tLow) && !inCheck) {
+				int r = nullReduction(depth);
+				Node window = windows[ply];
+				window.alpha = window.beta = node.alpha;
+				d.reduced += r;
+				int v = evenDepth(window, Move.NONE, d);
+				d.reduced -= r;
+				if (stopped || (v < node.alpha && v > -DECIDED)) {
+					unmake(move);
+					d.upOne();
+					return stopped ? 0 : v;
+				}
+			}
+
+			// moves come in stages, so a cutoff may skip generating the quiet ones
+			MovePicker picker = pickers[ply];
+			picker.reset(tc,TranspositionTable.move(entry),killers[ply][0],killers[ply][1],counterMove(move,tc));
+			int beta = node.beta;
+			int reply, moves = 0, best = Integer.MAX_VALUE, bestMove = Move.NONE;
+			while ((reply = picker.next()) != Move.NONE) {
+				moves++;
+				if (futile && best != Integer.MAX_VALUE && MovePicker.isQuiet(reply) && !b.givesCheck(reply)) {
+					node.updateBeta(eval-margins[FUTILITY]);
+					continue;
+				}
+				int v;
+				if (moves == 1 || node.beta == Integer.MAX_VALUE) {
+					v = evenDepth(node, reply, d);
+				} else {
+					// null window: prove the reply does not get under beta, search it
+					// properly only if it does (cutoffs are strict, so the window sits on
+					// beta itself). A late quiet reply is first searched less deeply.
+					Node window = windows[ply];
+					window.alpha = window.beta = node.beta;
+					int r = reduction(depth,moves,reply,inCheck);
+					d.reduced += r;
+					v = evenDepth(window, reply, d);
+					d.reduced -= r;
+					if (!stopped && r > 0 && v < node.beta)
+						v = evenDepth(window, reply, d);
+					if (!stopped && v < node.beta)
+						v = evenDepth(node, reply, d);
+				}
+				if (stopped)
+					break;
+				node.updateBeta(v);
+				if (v < best) {
+					best = v;
+					bestMove = reply;
+				}
+				if (node.beta < node.alpha) {
+					storeCutoff(ply,depth,reply,move,tc);
+					break;
+				}
+			}
+			if (stopped) {
+				unmake(move);
+				d.upOne();
+				return 0;
+			}
+			if (moves == 0) {
+				d.upOne();
+				int out = noMoves(false,d);
+				unmake(move);
+				return out;
+			}
+
+			// a cutoff only shows the value is at most node.value; without one the value
+			// is exact, unless no reply got to beta, when it is at least node.value
+			if (node.beta < node.alpha)
+				tt.store(key,depth,TranspositionTable.UPPER,toTable(node.value,ply),bestMove);
+			else if (node.value <= beta)
+				tt.store(key,depth,TranspositionTable.EXACT,toTable(node.value,ply),bestMove);
+			else
+				tt.store(key,depth,TranspositionTable.LOWER,toTable(node.value,ply),Move.NONE);
+
+			unmake(move);
 			d.upOne();
 
 			return node.value;
@@ -468,74 +1234,159 @@ public class Computer implements PlayerInterface {
 	}
 
 	/**
-	 * Catch end game states (win, loss, stalemate) that result from their moves. A stalemate
-	 * from this depth returns a positive value, as it is assumed bad for the opponent as well.
-	 * This requires some filtering at the root node.
+	 * A maximizing node. Makes their move, checks if it is a leaf node (in which case it
+	 * evaluates the position and returns), then takes our legal moves from a MovePicker
+	 * and calls oddDepth(Node,int,Dispatch) to recurse down. If we have no legal move, the
+	 * position is scored as a mate or stalemate. Before our moves, passing (a null move,
+	 * searched less deeply) may already show they cannot get under beta.
 	 * 
-	 * @param n  the current node
-	 * @return zero if non-end game state, WIN if Computer wins, 0-STALE if stalemate.
-	 */
-	private int checkTheirMoves (Node n) {
-		if (tc == Colour.BLACK) {
-			if (n.blackInCheck) {
-			 	if (n.parent.blackInCheck) { return WIN; }
-			 	return (0-STALE);
-			}
-		} else {
-			if (n.whiteInCheck) {
-				if (n.parent.whiteInCheck) { return WIN; }
-				return (0-STALE);
-			}
-		}
-		return 0;
-	}
-
-	/**
-	 * A maximizing node. Attempts to move a piece from current to next. If successful,
-	 * it checks for badMoves (end states, in which case it returns), checks if it is a leaf
-	 * node (in which case it evaluates the position and returns), and finally generates all
-	 * possible moves and calls oddDepth(Node,byte,byte,Dispatch) to recurse down.
-	 * 
-	 * @param  parent  the parent node, needed to detect badMoves
-	 * @param  current a piece's current position
-	 * @param  next    the piece's desired next position
+	 * @param  parent  the parent node
+	 * @param  move    the move to make (see Chess.Move), or Move.NONE to pass
 	 * @param  d       for keeping track of depth
-	 * @return         the utility of the move from current to next
+	 * @return         the utility of the move
 	 */
-	private int evenDepth (Node parent, byte current, byte next, Dispatch d) {
-		if (b.boardMove(this,current,next)) {
+	private int evenDepth (Node parent, int move, Dispatch d) {
+		if (make(move)) {
+			nodes++;
+			if (checkTime()) {
+				unmake(move);
+				return 0;
+			}
 
-			Piece[] pieces = new Piece[16];
 			Node node = new Node(parent);
 
-			int badMove = checkTheirMoves(node);
-			if (badMove != 0) {
-				b.undoMove();
-				return badMove - d.lookAhead();
-			}
-
 			if (d.downOne()) {
-				int out = d.eval();
-				b.undoMove();
+				int out = quiescence(true,node.alpha,node.beta,d);
+				unmake(move);
 				d.upOne();
 				return out;
 			}
 
-			outer:
-			for (int i = 0; i < 16; i++) {
-				if ((64&b.pieces[i+mLow]) == 64) {
-					pieces[i] = new Piece(i+mLow);
-					int a = 0;
-					while (pieces[i].nexts[a] != 0) {
-						node.updateAlpha(oddDepth(node, pieces[i].current, pieces[i].nexts[a], d));
-						if (node.beta < node.alpha)
-							break outer;
-						a++;
+			// a result from the table may settle the node without searching it
+			int ply = d.curDepth;
+			long key = b.getHash();
+			long entry = tt.probe(key);
+			int depth = d.depth();
+			if (entry != 0 && TranspositionTable.depth(entry) >= depth) {
+				int score = fromTable(TranspositionTable.score(entry),ply);
+				int bound = TranspositionTable.bound(entry);
+				if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER && score > node.beta)
+						|| (bound == TranspositionTable.UPPER && score < node.alpha)) {
+					unmake(move);
+					d.upOne();
+					return score;
+				}
+			}
+
+			boolean inCheck = b.isSquareAttacked(63&b.pieces[mLow],tc);
+
+			// forward pruning near the leaves, judged by the static evaluation (see
+			// #setPruning(int,boolean,int))
+			int eval = 0;
+			boolean futile = false;
+			if (!inCheck && depth <= PRUNING_DEPTH && node.alpha > -DECIDED && node.beta < DECIDED) {
+				eval = d.eval();
+				// reverse futility: so far over beta that none of their replies would get back
+				int margin = margins[REVERSE_FUTILITY]*depth;
+				if (pruning[REVERSE_FUTILITY] && eval-margin > node.beta) {
+					unmake(move);
+					d.upOne();
+					return eval-margin;
+				}
+				// razoring: well under alpha a ply before the frontier, so only look at
+				// captures; if they do not get over alpha either, nothing will
+				if (pruning[RAZORING] && depth == 2 && eval+margins[RAZORING] < node.alpha) {
+					int v = quiescence(true,node.alpha,node.beta,d);
+					if (stopped || v < node.alpha) {
+						unmake(move);
+						d.upOne();
+						return stopped ? 0 : v;
 					}
 				}
+				// futility: at the frontier, a quiet move cannot get over alpha from here
+				futile = pruning[FUTILITY] && depth == 1 && eval+margins[FUTILITY] < node.alpha;
 			}
 
-			b.undoMove();
+			// null move: if we pass and they still cannot get under beta, one of our
+			// moves would surely do as well
+			if (move != Move.NONE && node.beta < DECIDED && depth >= NULL_MOVE_DEPTH
+					&& hasPieces(mLow) && !inCheck) {
+				int r = nullReduction(depth);
+				Node window = windows[ply];
+				window.alpha = window.beta = node.beta;
+				d.reduced += r;
+				int v = oddDepth(window, Move.NONE, d);
+				d.reduced -= r;
+				if (stopped || (v > node.beta && v < DECIDED)) {
+					unmake(move);
+					d.upOne();
+					return stopped ? 0 : v;
+				}
+			}
+
+			// moves come in stages, so a cutoff may skip generating the quiet ones
+			MovePicker picker = pickers[ply];
+			picker.reset(colour,TranspositionTable.move(entry),killers[ply][0],killers[ply][1],counterMove(move,colour));
+			int alpha = node.alpha;
+			int reply, moves = 0, best = Integer.MIN_VALUE, bestMove = Move.NONE;
+			while ((reply = picker.next()) != Move.NONE) {
+				moves++;
+				if (futile && best != Integer.MIN_VALUE && MovePicker.isQuiet(reply) && !b.givesCheck(reply)) {
+					node.updateAlpha(eval+margins[FUTILITY]);
+					continue;
+				}
+				int v;
+				if (moves == 1 || node.alpha == Integer.MIN_VALUE) {
+					v = oddDepth(node, reply, d);
+				} else {
+					// null window: prove the move does not get over alpha, search it
+					// properly only if it does. A late quiet move is first searched less
+					// deeply.
+					Node window = windows[ply];
+					window.alpha = window.beta = node.alpha;
+					int r = reduction(depth,moves,reply,inCheck);
+					d.reduced += r;
+					v = oddDepth(window, reply, d);
+					d.reduced -= r;
+					if (!stopped && r > 0 && v > node.alpha)
+						v = oddDepth(window, reply, d);
+					if (!stopped && v > node.alpha)
+						v = oddDepth(node, reply, d);
+				}
+				if (stopped)
+					break;
+				node.updateAlpha(v);
+				if (v > best) {
+					best = v;
+					bestMove = reply;
+				}
+				if (node.beta < node.alpha) {
+					storeCutoff(ply,depth,reply,move,colour);
+					break;
+				}
+			}
+			if (stopped) {
+				unmake(move);
+				d.upOne();
+				return 0;
+			}
+			if (moves == 0) {
+				d.upOne();
+				int out = noMoves(true,d);
+				unmake(move);
+				return out;
+			}
+
+			// a cutoff only shows the value is at least node.value; without one the value
+			// is exact, unless no move got to alpha, when it is at most node.value
+			if (node.beta < node.alpha)
+				tt.store(key,depth,TranspositionTable.LOWER,toTable(node.value,ply),bestMove);
+			else if (node.value >= alpha)
+				tt.store(key,depth,TranspositionTable.EXACT,toTable(node.value,ply),bestMove);
+			else
+				tt.store(key,depth,TranspositionTable.UPPER,toTable(node.value,ply),Move.NONE);
+
+			unmake(move);
 			d.upOne();
 
 			return node.value;
@@ -551,7 +1402,7 @@ public class Computer implements PlayerInterface {
 	 * 
 	 * @return utility of the position
 	 */
-	private int simpleEval () {
+	int simpleEval () {
 		int sum = 0;
 
 		for (int i = mLow; i < mHi; i++)
@@ -561,7 +1412,7 @@ public class Computer implements PlayerInterface {
 			if ((64&b.pieces[i]) == 64)
 				sum -= pieceValue(i);
 
-		if (flags == 0 && (flagsMask&CastleSync.getFlags()) != 0) {
+		if (flags == 0 && (flagsMask&b.getCastleFlags()) != 0) {
 			if ((56&b.pieces[mLow]) == 16 || (56&b.pieces[mLow]) == 48) {
 				// we castled
 				sum += 2;
@@ -578,13 +1429,13 @@ public class Computer implements PlayerInterface {
 	 * Better, slower evaluation function. This function makes uses of state detection (open/mid/end game),
 	 * and encourages certain patterns in each one. Centre control, development, and king safety is emphasized
 	 * in the opening. Pawn structure and rook placement is emphasized in the middle. If endgame is detected,
-	 * maxDepth is increased, and the evaluation function gives a small boost for a centralized king. These
+	 * the search looks two plies further, and the evaluation function gives a small boost for a centralized king. These
 	 * reward structures were chosen based on chess theory (gleaned from the Chess Club and Scholastic Centre
 	 * of St. Louis's and Mato Jelic's Youtube channels) and ease of computation. 
 	 *  
 	 * @return utility of the position
 	 */
-	private int bigEval () {
+	int bigEval () {
 		int out = 0; // the return value
 		byte next; // scratch variable for ease of development
 
@@ -628,7 +1479,7 @@ public class Computer implements PlayerInterface {
 
 			// get king to safety
 			int castled = 0;
-			if (flags == 0 && (flagsMask&CastleSync.getFlags()) != 0) {
+			if (flags == 0 && (flagsMask&b.getCastleFlags()) != 0) {
 				if ((56&b.pieces[mLow]) == 16 || (56&b.pieces[mLow]) == 48) {
 					// we castled
 					castled += 4;
@@ -800,7 +1651,7 @@ public class Computer implements PlayerInterface {
 		}
 
 		if (endgame) {
-			// looks farther ahead (facilitated by makeMove() increasing maxDepth)
+			// looks farther ahead (makeMove() searches two plies deeper)
 			// get king to center
 			int centerKing = 0;
 			if ((56&b.pieces[mLow]) > 8 && (56&b.pieces[mLow]) < 48 && (7&b.pieces[mLow]) > 1 && (7&b.pieces[mLow]) < 6) {
@@ -840,13 +1691,14 @@ public class Computer implements PlayerInterface {
 	}
 	
 	/**
-	 * "Catch" pawn promotion, promote to queen or knight (these will cover all movement options possible).
-	 * Both options will be explored (@see Chess.Pawn#getMoves(byte)).
+	 * Never consulted by the search: every promotion piece is a separate move
+	 * (@see Chess.Board#generateMoves(int,int[],int)) and is played with
+	 * Board#boardMove(int). Only reached if this player is handed to the
+	 * byte-pair form of Board#boardMove().
 	 * 
-	 * @return a character code for the promoted pawn (either 'N' or 'Q').
+	 * @return 'Q'
 	 */
 	public char choosePawnPromo() {
-		promoChar = (promoChar == 'N') ? 'Q' : 'N';
-		return promoChar;
+		return 'Q';
 	}
 }
\ No newline at end of file
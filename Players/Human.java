@@ -15,6 +15,7 @@ public class Human implements PlayerInterface {
 	private Scanner in;
 	private Board b;
 	private Colour colour;
+	private int[] legal; // buffer for Board#generateLegalMoves()
 	
 	/**
 	 * Constructor
@@ -25,6 +26,7 @@ public class Human implements PlayerInterface {
 	public Human (Board b, Colour colour) {
 		this.b = b;
 		this.colour = colour;
+		legal = new int[Board.MAX_MOVES];
 		in = new Scanner(System.in);
 	}
 
@@ -37,21 +39,48 @@ public class Human implements PlayerInterface {
 		return colour;
 	}
 	
-	/** Calls getMove(), then ensures move does not put Human in check. */
+	/** Calls getMove(), then ensures move is one of Human's legal moves. */
 	public void makeMove() {
-		String input;
 		for ( ; ; ) {
 			byte[] aMove = getMove();
 			if (aMove[0] == -128) {
 				b.gameOver = "X";
 				break;
-			} else if (b.boardMove(this,aMove[0],aMove[1]) &&
-				b.checkCheck(colour,aMove[0],aMove[1])) {
+			}
+			int move = findMove(aMove[0],aMove[1]);
+			if (move != Move.NONE) {
+				// the move is legal, checkCheck() only records who is now in check
+				b.boardMove(move);
+				b.checkCheck(colour,aMove[0],aMove[1]);
 				break;
 			}
 			System.out.println(" invalid move");
 		}
 	}
+
+	/**
+	 * Look a move up in the list of legal moves. If it is a pawn promotion, the
+	 * user is asked which piece to promote to.
+	 * 
+	 * @param current  the piece to move
+	 * @param next  its desired replacement
+	 * @return the packed move (see Chess.Move), or Move.NONE if it is not legal
+	 */
+	private int findMove (byte current, byte next) {
+		int moves = b.generateLegalMoves(colour,legal,0);
+		char promo = 0;
+		for (int a = 0; a < moves; a++) {
+			if (Move.from(legal[a]) == (63&current) && Move.to(legal[a]) == (63&next)) {
+				if (Move.promotion(legal[a]) == 0)
+					return legal[a];
+				if (promo == 0)
+					promo = choosePawnPromo();
+				if (Move.promotionChar(legal[a]) == promo)
+					return legal[a];
+			}
+		}
+		return Move.NONE;
+	}
 	
 	/**
 	 * Ask the user for a move, sanitize input. Exit if input is 'x'.
@@ -0,0 +1,228 @@
+package Chess.Players;
+
+import Chess.*;
+
+/**
+ * Hands out the legal moves of one search node in stages: the hash move, then
+ * captures and promotions, then the killer moves, then the counter move, then the
+ * remaining quiet moves. Each stage is only generated once the one before it has
+ * run out, so a node that is cut off by an early move never generates its quiet
+ * moves. Within a stage the best looking move goes first: captures by MVV-LVA
+ * (most valuable victim, then least valuable attacker), quiet moves by their
+ * history score. Computer keeps one MovePicker per ply, so nothing is allocated
+ * during a search. In quiescence search only the captures and promotions are
+ * wanted, or every move when in check (see #resetQuiescence(Colour,boolean)).
+ *
+ * @author  Liam Marcassa
+ */
+class MovePicker {
+
+	// stages, in the order they are tried
+	private static final int HASH = 0;
+	private static final int GEN_NOISY = 1;
+	private static final int NOISY = 2;
+	private static final int KILLER_ONE = 3;
+	private static final int KILLER_TWO = 4;
+	private static final int COUNTER = 5;
+	private static final int GEN_QUIET = 6;
+	private static final int QUIET = 7;
+	private static final int DONE = 8;
+	private static final int GEN_EVASIONS = 9;
+
+	private Board b;
+	private Colour colour;
+	private int[] moves, scores;
+	private int stage, current, end;
+	private boolean noisyOnly;
+	private int hashMove, killerOne, killerTwo, counterMove;
+
+	// history scores stay below this (see Computer), so quiet evasions can be put
+	// behind the captures
+	private static final int HISTORY_RANGE = 1<<21;
+
+	// history scores of quiet moves for each colour, shared with Computer (see
+	// #index(int)), and those of the colour to move
+	private int[][] historyTables;
+	private int[] history;
+
+	/**
+	 * @param b  the Board to generate moves on
+	 * @param history  history scores of quiet moves for each colour (0 = black,
+	 *                 1 = white), indexed by #index(int)
+	 */
+	MovePicker (Board b, int[][] history) {
+		this.b = b;
+		historyTables = history;
+		moves = new int[Board.MAX_MOVES];
+		scores = new int[Board.MAX_MOVES];
+	}
+
+	/**
+	 * Start on a new node. The hash and killer moves may come from other
+	 * positions; they are checked before being handed out.
+	 *
+	 * @param colour  the colour to move
+	 * @param hashMove  best move found for this position before, or Move.NONE
+	 * @param killerOne  a quiet move that caused a cutoff at this ply, or Move.NONE
+	 * @param killerTwo  an older one, or Move.NONE
+	 * @param counterMove  a quiet move that refuted the previous move elsewhere,
+	 *                     or Move.NONE
+	 */
+	void reset (Colour colour, int hashMove, int killerOne, int killerTwo, int counterMove) {
+		this.colour = colour;
+		this.hashMove = hashMove;
+		this.killerOne = killerOne;
+		this.killerTwo = killerTwo;
+		this.counterMove = counterMove;
+		history = historyTables[(colour == Colour.BLACK) ? 0 : 1];
+		noisyOnly = false;
+		stage = HASH;
+	}
+
+	/**
+	 * Start on a quiescence search node: only captures and promotions, unless the
+	 * side to move is in check, when every move is needed to tell if it is mated.
+	 * 
+	 * @param colour  the colour to move
+	 * @param inCheck  whether colour is in check
+	 */
+	void resetQuiescence (Colour colour, boolean inCheck) {
+		this.colour = colour;
+		hashMove = killerOne = killerTwo = counterMove = Move.NONE;
+		history = historyTables[(colour == Colour.BLACK) ? 0 : 1];
+		noisyOnly = true;
+		stage = inCheck ? GEN_EVASIONS : GEN_NOISY;
+	}
+
+	/**
+	 * @return the next legal move (see Chess.Move), or Move.NONE once every
+	 *         legal move has been handed out
+	 */
+	int next () {
+		for ( ; ; ) {
+			switch (stage) {
+				case HASH:
+					stage = GEN_NOISY;
+					if (b.isLegalMove(colour,hashMove))
+						return hashMove;
+					hashMove = Move.NONE;
+					break;
+				case GEN_NOISY:
+					end = b.generateLegalMoves(colour,moves,0,Board.GEN_NOISY);
+					for (int i = 0; i < end; i++)
+						scores[i] = mvvLva(moves[i]);
+					current = 0;
+					stage = NOISY;
+					break;
+				case NOISY:
+					while (current < end) {
+						int move = pickBest();
+						if (move != hashMove)
+							return move;
+					}
+					stage = noisyOnly ? DONE : KILLER_ONE;
+					break;
+				case KILLER_ONE:
+					stage = KILLER_TWO;
+					if (isQuiet(killerOne) && killerOne != hashMove && b.isLegalMove(colour,killerOne))
+						return killerOne;
+					killerOne = Move.NONE;
+					break;
+				case KILLER_TWO:
+					stage = COUNTER;
+					if (isQuiet(killerTwo) && killerTwo != hashMove && killerTwo != killerOne && b.isLegalMove(colour,killerTwo))
+						return killerTwo;
+					killerTwo = Move.NONE;
+					break;
+				case COUNTER:
+					stage = GEN_QUIET;
+					if (isQuiet(counterMove) && counterMove != hashMove && counterMove != killerOne
+							&& counterMove != killerTwo && b.isLegalMove(colour,counterMove))
+						return counterMove;
+					counterMove = Move.NONE;
+					break;
+				case GEN_QUIET:
+					end = b.generateLegalMoves(colour,moves,0,Board.GEN_QUIET);
+					for (int i = 0; i < end; i++)
+						scores[i] = history[index(moves[i])];
+					current = 0;
+					stage = QUIET;
+					break;
+				case QUIET:
+					while (current < end) {
+						int move = pickBest();
+						if (move != hashMove && move != killerOne && move != killerTwo && move != counterMove)
+							return move;
+					}
+					stage = DONE;
+					break;
+				case GEN_EVASIONS:
+					// captures first, as they are in the NOISY stage
+					end = b.generateLegalMoves(colour,moves,0);
+					for (int i = 0; i < end; i++)
+						scores[i] = isQuiet(moves[i]) ? history[index(moves[i])]-HISTORY_RANGE : mvvLva(moves[i]);
+					current = 0;
+					stage = QUIET;
+					break;
+				default:
+					return Move.NONE;
+			}
+		}
+	}
+
+	/**
+	 * Selection sort, one step at a time: swap the best scoring of the moves not
+	 * yet handed out to the front. Most nodes are cut off after a move or two, so
+	 * sorting the whole list up front would be wasted.
+	 * 
+	 * @return the best of the remaining moves
+	 */
+	private int pickBest () {
+		int best = current;
+		for (int i = current+1; i < end; i++) {
+			if (scores[i] > scores[best])
+				best = i;
+		}
+		int move = moves[best];
+		moves[best] = moves[current];
+		scores[best] = scores[current];
+		current++;
+		return move;
+	}
+
+	/**
+	 * Most valuable victim, least valuable attacker: capturing a queen with a pawn
+	 * comes first, capturing a pawn with the king last. The attacker only breaks
+	 * ties between victims (the piece types run from KING to PAWN, most to least
+	 * valuable). Promotions add the value of the new piece.
+	 * 
+	 * @param move  a capture or promotion
+	 * @return the move's score, higher is tried sooner
+	 */
+	private int mvvLva (int move) {
+		int score = 0;
+		if (Move.isCapture(move))
+			score = 16*Board.SEE_VALUES[Board.typeOf(b.pieceNames[Move.captured(move)])]
+				+ Board.typeOf(b.pieceNames[Move.piece(move)]);
+		if (Move.promotion(move) != 0)
+			score += 16*Board.SEE_VALUES[Move.promotion(move)];
+		return score;
+	}
+
+	/**
+	 * @param move  a packed move
+	 * @return index of move into the history and counter move tables: its from
+	 *         and to squares
+	 */
+	static int index (int move) {
+		return 4095&move;
+	}
+
+	/**
+	 * @param move  a packed move
+	 * @return true if move is neither a capture nor a promotion (nor Move.NONE)
+	 */
+	static boolean isQuiet (int move) {
+		return move != Move.NONE && !Move.isCapture(move) && Move.promotion(move) == 0;
+	}
+}
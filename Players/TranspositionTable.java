@@ -0,0 +1,124 @@
+package Chess.Players;
+
+import java.util.Arrays;
+
+/**
+ * Remembers what the search learned about positions it has already seen, so a
+ * position reached again through a different move order (a transposition) need
+ * not be searched again. Entries are found by Zobrist key (see Board#getHash())
+ * and hold the depth searched, the score, whether that score is exact or only a
+ * bound, and the best move, which is tried first next time.
+ *
+ * The table is a fixed number of buckets of two entries. The first entry of a
+ * bucket keeps the deepest result (unless it is left over from an earlier
+ * search), the second is always replaced, so deep results survive while recent
+ * shallow ones are still kept. Each entry stores its key XORed with its data:
+ * should two threads ever write one entry at once, the torn entry fails the key
+ * check and reads as a miss, so no locks are needed.
+ *
+ * @author  Liam Marcassa
+ */
+public class TranspositionTable {
+
+	// bound types; zero marks an empty entry
+	static final int EXACT = 1; // the score is the position's value
+	static final int LOWER = 2; // the value is at least the score
+	static final int UPPER = 3; // the value is at most the score
+
+	public static final int DEFAULT_MB = 16;
+
+	// data bits:
+	// 0-28  = best move (see Chess.Move), or Move.NONE
+	// 29-30 = bound type
+	// 31-37 = depth searched below the position
+	// 38-45 = age, the search that stored it
+	// 48-63 = score (signed)
+	private long[] keys, data;
+	private int mask; // number of buckets minus one
+	private int age;
+
+	/** @param megabytes  approximate table size */
+	public TranspositionTable (int megabytes) {
+		int buckets = Integer.highestOneBit(Math.max(1,(int) ((long) megabytes*(1<<20)/32)));
+		keys = new long[2*buckets];
+		data = new long[2*buckets];
+		mask = buckets-1;
+	}
+
+	/** Forget every entry. */
+	public void clear () {
+		Arrays.fill(keys,0L);
+		Arrays.fill(data,0L);
+		age = 0;
+	}
+
+	/**
+	 * Called at the start of each search, so entries from earlier searches can be
+	 * told apart and replaced first.
+	 */
+	void newSearch () {
+		age = 255&(age+1);
+	}
+
+	/**
+	 * @param key  Zobrist key of the position
+	 * @return the entry's data (read it with #move(long), #bound(long), #depth(long)
+	 *         and #score(long)), or zero if the position is not in the table
+	 */
+	long probe (long key) {
+		int i = ((int) key & mask) << 1;
+		long d = data[i];
+		if ((keys[i] ^ d) == key && d != 0)
+			return d;
+		d = data[i+1];
+		if ((keys[i+1] ^ d) == key && d != 0)
+			return d;
+		return 0L;
+	}
+
+	/**
+	 * @param key  Zobrist key of the position
+	 * @param depth  plies searched below the position
+	 * @param bound  EXACT, LOWER or UPPER
+	 * @param score  the score, or bound on it
+	 * @param move  best move found, or Move.NONE to keep the one already stored
+	 */
+	void store (long key, int depth, int bound, int score, int move) {
+		int i = ((int) key & mask) << 1;
+		long old = data[i];
+		boolean same = (keys[i] ^ old) == key;
+		if (!same && depth < depth(old) && (255&(old >>> 38)) == age) {
+			// the deep entry is worth keeping, use the always-replace one
+			i++;
+			old = data[i];
+			same = (keys[i] ^ old) == key;
+		}
+		if (move == 0 && same)
+			move = move(old);
+
+		long d = (long) move | (long) bound << 29 | (long) Math.min(depth,127) << 31
+			| (long) age << 38 | (long) score << 48;
+		data[i] = d;
+		keys[i] = key ^ d;
+	}
+
+	/** @return the best move of an entry, or Move.NONE */
+	static int move (long data) {
+		return (int) data & 0x1FFFFFFF;
+	}
+
+	/** @return the bound type of an entry */
+	static int bound (long data) {
+		return 3&(int) (data >>> 29);
+	}
+
+	/** @return the depth an entry was searched to */
+	static int depth (long data) {
+		return 127&(int) (data >>> 31);
+	}
+
+	/** @return the score of an entry */
+	static int score (long data) {
+		return (int) (data >> 48);
+	}
+}
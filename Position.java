@@ -0,0 +1,206 @@
+package Chess;
+
+/**
+ * An immutable snapshot of everything needed to play on from a Board: pieces,
+ * pieceNames, castling flags, the en passant square and the side to move. It
+ * packs into five longs, so it can be handed between threads, cached or
+ * compared cheaply. Taken with Board#getPosition(), and turned back into a
+ * working Board (without the GUI) with Board#Board(Position). Move history is
+ * not part of a Position.
+ *
+ * @author  Liam Marcassa
+ */
+public final class Position {
+
+	// pieces[0-31], eight to a long: pieces[8k+j] is bits 8j+7 to 8j of p[k]
+	private final long p0, p1, p2, p3;
+
+	// meta bits:
+	// 0-47  = pieceNames of slots 8-15 and 24-31 (the only ones that can change),
+	//         three bits each: zero if empty, else the Board type (KING to PAWN) plus one
+	// 48-53 = castling flags (see CastleSync)
+	// 54-59 = en passant square
+	// 60    = en passant square is set
+	// 61    = black to move
+	private final long meta;
+
+	// names of the fixed slots, as in Board#fillPieces()
+	private static final String KEY = "KQRRBBNN";
+	private static final String NAMES = "KQRBNP";
+
+	/**
+	 * Pack a Board's state. Only called by Board#getPosition().
+	 *
+	 * @param pieces  Board.pieces
+	 * @param pieceNames  Board.pieceNames
+	 * @param castleFlags  Board's castling flags
+	 * @param epSquare  Board's en passant square, or -1
+	 * @param sideToMove  the colour to move next
+	 */
+	Position (byte[] pieces, byte[] pieceNames, byte castleFlags, int epSquare, Colour sideToMove) {
+		p0 = pack(pieces,0);
+		p1 = pack(pieces,8);
+		p2 = pack(pieces,16);
+		p3 = pack(pieces,24);
+
+		long m = 0L;
+		for (int i = 0; i < 16; i++) {
+			int slot = (i < 8) ? i+8 : i+16;
+			if (pieceNames[slot] != 0)
+				m |= (long) (Board.typeOf(pieceNames[slot])+1) << (3*i);
+		}
+		m |= (long) (63&castleFlags) << 48;
+		if (epSquare >= 0)
+			m |= (long) epSquare << 54 | 1L << 60;
+		if (sideToMove == Colour.BLACK)
+			m |= 1L << 61;
+		meta = m;
+	}
+
+	/**
+	 * Parse Forsyth-Edwards Notation, e.g. the starting position is
+	 * "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1". Only the first
+	 * four fields are read (the move counters are optional and ignored). Note FEN
+	 * writes white in uppercase, the opposite of Board#printBoard().
+	 *
+	 * @param fen  the position
+	 * @return the Position, turned into a Board with Board#Board(Position)
+	 * @throws IllegalArgumentException if fen cannot be parsed
+	 */
+	public static Position fromFEN (String fen) {
+		String[] fields = fen.trim().split("\\s+");
+		String[] ranks = fields[0].split("/");
+		if (ranks.length != 8)
+			throw new IllegalArgumentException("FEN needs 8 ranks: " + fen);
+
+		// Board's codes: uppercase black, lowercase white
+		char[][] config = new char[8][8];
+		int black = 0, white = 0;
+		for (int r = 0; r < 8; r++) {
+			int row = 7-r, col = 0;
+			for (char ch : ranks[r].toCharArray()) {
+				if (ch >= '1' && ch <= '8') {
+					col += ch-'0';
+				} else if (col < 8 && "KQRBNPkqrbnp".indexOf(ch) >= 0) {
+					if (Character.isUpperCase(ch)) {
+						config[col++][row] = Character.toLowerCase(ch);
+						white++;
+					} else {
+						config[col++][row] = Character.toUpperCase(ch);
+						black++;
+					}
+				} else {
+					throw new IllegalArgumentException("bad FEN rank '" + ranks[r] + "': " + fen);
+				}
+			}
+			if (col != 8)
+				throw new IllegalArgumentException("bad FEN rank '" + ranks[r] + "': " + fen);
+		}
+		if (black > 16 || white > 16)
+			throw new IllegalArgumentException("more than 16 pieces of one colour: " + fen);
+
+		byte[] pieces = new byte[32];
+		byte[] pieceNames = new byte[32];
+		Board.fillPieces(config,pieces,pieceNames);
+		if (pieceNames[0] != 'K' || pieceNames[16] != 'K')
+			throw new IllegalArgumentException("FEN needs one king of each colour: " + fen);
+
+		Colour side = Colour.WHITE;
+		if (fields.length > 1 && fields[1].equals("b"))
+			side = Colour.BLACK;
+
+		// a right is lost if FEN leaves it out, or the king or rook is not at home
+		String rights = (fields.length > 2) ? fields[2] : "-";
+		byte castleFlags = 0;
+		if (config[4][7] != 'K')
+			castleFlags = CastleSync.set(castleFlags,(byte)-25);
+		if (config[4][0] != 'k')
+			castleFlags = CastleSync.set(castleFlags,(byte)96);
+		if (rights.indexOf('k') < 0 || config[7][7] != 'R')
+			castleFlags = CastleSync.set(castleFlags,(byte)-1);
+		if (rights.indexOf('q') < 0 || config[0][7] != 'R')
+			castleFlags = CastleSync.set(castleFlags,(byte)-57);
+		if (rights.indexOf('K') < 0 || config[7][0] != 'r')
+			castleFlags = CastleSync.set(castleFlags,(byte)120);
+		if (rights.indexOf('Q') < 0 || config[0][0] != 'r')
+			castleFlags = CastleSync.set(castleFlags,(byte)64);
+
+		int epSquare = -1;
+		if (fields.length > 3 && !fields[3].equals("-")) {
+			String ep = fields[3];
+			if (ep.length() != 2 || ep.charAt(0) < 'a' || ep.charAt(0) > 'h' || (ep.charAt(1) != '3' && ep.charAt(1) != '6'))
+				throw new IllegalArgumentException("bad FEN en passant square: " + fen);
+			epSquare = (ep.charAt(0)-'a')<<3 | (ep.charAt(1)-'1');
+		}
+
+		return new Position(pieces,pieceNames,castleFlags,epSquare,side);
+	}
+
+	/**
+	 * @param pieces  the array to read
+	 * @param from  first of eight indices to pack
+	 * @return pieces[from] to pieces[from+7], lowest index in the lowest byte
+	 */
+	private static long pack (byte[] pieces, int from) {
+		long out = 0L;
+		for (int j = 0; j < 8; j++)
+			out |= (long) (0xFF&pieces[from+j]) << (8*j);
+		return out;
+	}
+
+	/**
+	 * Write pieces and pieceNames back out. A slot whose pieces entry is zero is
+	 * given no name, as in Board#fillPieces().
+	 *
+	 * @param pieces  array of 32 to fill
+	 * @param pieceNames  array of 32 to fill
+	 */
+	void unpack (byte[] pieces, byte[] pieceNames) {
+		long[] packed = {p0, p1, p2, p3};
+		for (int i = 0; i < 32; i++)
+			pieces[i] = (byte) (packed[i>>3] >>> (8*(7&i)));
+
+		for (int i = 0; i < 32; i++) {
+			if ((15&i) < 8) {
+				pieceNames[i] = (pieces[i] == 0) ? 0 : (byte) KEY.charAt(i&7);
+			} else {
+				int shift = 3*((i < 16) ? i-8 : i-16);
+				int code = (int) (7&(meta >>> shift));
+				pieceNames[i] = (code == 0) ? 0 : (byte) NAMES.charAt(code-1);
+			}
+		}
+	}
+
+	/** @return the castling flags (see CastleSync) */
+	public byte castleFlags () {
+		return (byte) (63&(meta >>> 48));
+	}
+
+	/** @return the en passant square, or -1 if there is none */
+	public int epSquare () {
+		return ((meta >>> 60)&1) == 0 ? -1 : (int) (63&(meta >>> 54));
+	}
+
+	/** @return the colour to move */
+	public Colour sideToMove () {
+		return ((meta >>> 61)&1) == 0 ? Colour.WHITE : Colour.BLACK;
+	}
+
+	@Override
+	public boolean equals (Object o) {
+		if (!(o instanceof Position))
+			return false;
+		Position p = (Position) o;
+		return p0 == p.p0 && p1 == p.p1 && p2 == p.p2 && p3 == p.p3 && meta == p.meta;
+	}
+
+	@Override
+	public int hashCode () {
+		long h = p0;
+		h = 31*h + p1;
+		h = 31*h + p2;
+		h = 31*h + p3;
+		h = 31*h + meta;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -21,6 +21,7 @@ public class Referee {
 	private Board board;
 	private PlayerInterface wPlayer, bPlayer; // white player and black player
 	private BufferedWriter bw; // for logging moves out to file
+	private int[] legal; // buffer for Board#generateLegalMoves()
 	public int moveCount;
 	
 	/** 
@@ -29,6 +30,7 @@ public class Referee {
 	 */
 	public Referee () {
 		moveCount = 0;
+		legal = new int[Board.MAX_MOVES];
 		in = new Scanner(System.in);
 
 		board = new Board();
@@ -71,25 +73,41 @@ public class Referee {
 		if (options.humanFirst) {
 			if (turn == Colour.WHITE) {
 				wPlayer = new Human(board,Colour.WHITE);
-				bPlayer = new Computer(board,Colour.BLACK,options.simpleEval,options.depth);
+				bPlayer = makeComputer(Colour.BLACK,options);
 			} else {
-				wPlayer = new Computer(board,Colour.WHITE,options.simpleEval,options.depth);
+				wPlayer = makeComputer(Colour.WHITE,options);
 				bPlayer = new Human(board,Colour.BLACK);
 			}
 		} else {
 			if (turn == Colour.WHITE) {
-				wPlayer = new Computer(board,Colour.WHITE,options.simpleEval,options.depth);
+				wPlayer = makeComputer(Colour.WHITE,options);
 				bPlayer = new Human(board,Colour.BLACK);
 			} else {
 				wPlayer = new Human(board,Colour.WHITE);
-				bPlayer = new Computer(board,Colour.BLACK,options.simpleEval,options.depth);
+				bPlayer = makeComputer(Colour.BLACK,options);
 			}
 		}
 		return true;
 	}
+
+	/**
+	 * Create the Computer player and apply the user's search options.
+	 * 
+	 * @param  colour  the Computer's colour
+	 * @param  options the user-specified parameters
+	 * @return         the new player
+	 */
+	private Computer makeComputer (Colour colour, BoardOptions options) {
+		Computer computer = new Computer(board,colour,options.simpleEval,options.depth);
+		computer.setHashSize(options.hashMB);
+		computer.setThreads(options.threads);
+		computer.setMoveTime(options.moveTime);
+		return computer;
+	}
 	
 	/**
-	 * Regulates turns, checks for end conditions, passes moves to file.
+	 * Regulates turns, checks for end conditions, passes moves to file. The game
+	 * is over when the player to move has no legal moves.
 	 * 
 	 * @return always true
 	 */
@@ -100,6 +118,16 @@ public class Referee {
 				System.out.println(board.gameOver);
 				break;
 			}
+
+			if (board.generateLegalMoves(turn,legal,0) == 0) {
+				if (board.calcCheck(turn)) {
+					PlayerInterface winner = (turn == Colour.WHITE) ? bPlayer : wPlayer;
+					board.gameOver = (winner instanceof Computer) ? "Computer wins!" : "Human wins!";
+				} else {
+					board.gameOver = "Stalemate";
+				}
+				continue;
+			}
 			
 			if (turn == Colour.WHITE) {
 				wPlayer.makeMove();
@@ -131,17 +159,15 @@ public class Referee {
 				bw.write(" ");
 			}
 
-			try {
-				int index = board.moveHistory.pieces[1];
-				char currentChar = (char) (((56&board.moveHistory.pieces[2])>>3)+65);
+			if (!board.moveHistory.isEmpty()) {
+				int index = board.moveHistory.index();
+				char currentChar = (char) (((56&board.moveHistory.old())>>3)+65);
 				char nextChar = (char) (((56&board.pieces[index])>>3)+65);
 				bw.write(currentChar);
-				bw.write((char)((7&board.moveHistory.pieces[2])+49));
+				bw.write((char)((7&board.moveHistory.old())+49));
 				bw.write("-");
 				bw.write(nextChar);
 				bw.write((char)((7&board.pieces[index])+49));
-			} catch (java.lang.NullPointerException e) {
-				// do nothing
 			}
 
 			if (turn == Colour.WHITE) { bw.newLine(); }
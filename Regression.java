@@ -23,8 +23,8 @@ public class Regression {
 			if (b.boardMove(shell,current,nexts[a])) {
 				b.printBoard();
 				b.undoMove();
-				System.out.println(CastleSync.canCastle((byte)-9));
-				System.out.println(CastleSync.getFlags());
+				System.out.println(CastleSync.canCastle(b.getCastleFlags(),(byte)-9));
+				System.out.println(b.getCastleFlags());
 			} else {
 				System.out.println("bad move");
 				System.out.println(nexts[a]);
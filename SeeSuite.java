@@ -0,0 +1,64 @@
+package Chess;
+
+/**
+ * Checks Board#see(int) against positions whose exchanges have been worked out
+ * by hand: any difference is a bug. Values are in pawns (see Board.SEE_VALUES),
+ * and the exit status is non-zero if any position fails.
+ *
+ * Usage:
+ *   java Chess.SeeSuite
+ *
+ * @author  Liam Marcassa
+ */
+public class SeeSuite {
+
+	// position, capture (as Move#toString(int) prints it), expected result
+	private static final String[][] SUITE = {
+		// undefended queen
+		{"4k3/8/8/4q3/3P4/8/8/4K3 w - - 0 1", "D4-E5", "9"},
+		// queen defended by a pawn: the pawn is lost, but the queen is won
+		{"4k3/8/3p4/4q3/3P4/8/8/4K3 w - - 0 1", "D4-E5", "8"},
+		// undefended pawn
+		{"1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1", "E1-E5", "1"},
+		// pawn defended by a pawn: the rook is lost for it
+		{"4k3/8/3p4/4p3/8/8/8/4RK2 w - - 0 1", "E1-E5", "-4"},
+		// the rook behind joins in, winning back a pawn
+		{"4k3/8/3p4/4p3/8/8/4R3/4R1K1 w - - 0 1", "E2-E5", "-3"}
+	};
+
+	/** Static helpers only */
+	private SeeSuite () { }
+
+	/**
+	 * Entry point, runs the suite.
+	 *
+	 * @param args  ignored
+	 */
+	public static void main (String[] args) {
+		int failed = 0;
+		int[] moves = new int[Board.MAX_MOVES];
+		for (String[] test : SUITE) {
+			Board b = new Board(Position.fromFEN(test[0]));
+			int size = b.generateLegalMoves(b.getSideToMove(),moves,0);
+			int move = Move.NONE;
+			for (int a = 0; a < size; a++) {
+				if (Move.toString(moves[a]).equals(test[1]))
+					move = moves[a];
+			}
+
+			int expected = Integer.parseInt(test[2]);
+			if (move == Move.NONE) {
+				System.out.println(test[1] + ": FAIL, not a legal move in " + test[0]);
+				failed++;
+			} else if (b.see(move) != expected) {
+				System.out.println(test[1] + ": FAIL, " + b.see(move) + " expected " + expected + " in " + test[0]);
+				failed++;
+			} else {
+				System.out.println(test[1] + ": " + expected);
+			}
+		}
+		System.out.println((failed == 0) ? "all passed" : failed + " failed");
+		if (failed != 0)
+			System.exit(1);
+	}
+}
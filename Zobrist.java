@@ -0,0 +1,83 @@
+package Chess;
+
+/**
+ * Random keys for Zobrist hashing. A position's key is the XOR of one key per
+ * piece on its square, plus keys for castling rights, the en passant file and
+ * black to move. Making a move only XORs the keys that changed, so Board keeps
+ * its key (see Board#getHash()) up to date as it goes. The keys come from a
+ * fixed seed so that hashes are the same from one run to the next.
+ *
+ * @author  Liam Marcassa
+ */
+public final class Zobrist {
+
+	// [colour][type][square], colour and type as in Board.pieceBoards
+	private static final long[][][] pieceKeys = new long[2][6][64];
+	// indexed by CastleSync#rights(byte)
+	private static final long[] castleKeys = new long[16];
+	// indexed by the column of Board#getEpSquare()
+	private static final long[] epKeys = new long[8];
+	private static final long blackKey;
+
+	static {
+		long seed = 0x2545F4914F6CDD1DL;
+		for (int c = 0; c < 2; c++)
+			for (int t = 0; t < 6; t++)
+				for (int s = 0; s < 64; s++)
+					pieceKeys[c][t][s] = seed = next(seed);
+		for (int i = 0; i < 16; i++)
+			castleKeys[i] = seed = next(seed);
+		for (int i = 0; i < 8; i++)
+			epKeys[i] = seed = next(seed);
+		blackKey = next(seed);
+	}
+
+	/** Static helpers only */
+	private Zobrist () { }
+
+	/**
+	 * One step of splitmix64. The returned value is used both as a key and
+	 * as the state for the next step.
+	 *
+	 * @param x  the previous value
+	 * @return the next pseudo-random value
+	 */
+	private static long next (long x) {
+		x += 0x9E3779B97F4A7C15L;
+		long z = x;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * @param colour  0 = black, 1 = white
+	 * @param type    Board.KING through Board.PAWN
+	 * @param square  col<<3 | row
+	 * @return key for that piece standing on that square
+	 */
+	public static long piece (int colour, int type, int square) {
+		return pieceKeys[colour][type][square];
+	}
+
+	/**
+	 * @param flags  Board's castling flags (see CastleSync)
+	 * @return key for the castling rights those flags leave
+	 */
+	public static long castle (byte flags) {
+		return castleKeys[CastleSync.rights(flags)];
+	}
+
+	/**
+	 * @param square  en passant square, or -1 if there is none
+	 * @return key for its column, zero if there is none
+	 */
+	public static long enPassant (int square) {
+		return (square < 0) ? 0L : epKeys[square>>3];
+	}
+
+	/** @return key XORed in when black is to move */
+	public static long black () {
+		return blackKey;
+	}
+}
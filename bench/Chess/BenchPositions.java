@@ -0,0 +1,46 @@
+package Chess;
+
+/**
+ * The positions shared by the JMH benchmarks: the opening, a crowded
+ * middlegame full of tactics ("Kiwipete"), a quiet middlegame and a sparse
+ * endgame, so a change that only helps one kind of position shows up as such.
+ * Benchmarks take them as a @Param naming one of the constants below.
+ *
+ * @author  Liam Marcassa
+ */
+public class BenchPositions {
+
+	public static final String START = Perft.START;
+	public static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+	public static final String MIDDLEGAME = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+	public static final String ENDGAME = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+
+	/** Static helpers only */
+	private BenchPositions () { }
+
+	/**
+	 * @param name  START, KIWIPETE, MIDDLEGAME or ENDGAME
+	 * @return a fresh Board set up on that position
+	 */
+	public static Board board (String name) {
+		return new Board(Position.fromFEN(fen(name)));
+	}
+
+	/**
+	 * @param name  START, KIWIPETE, MIDDLEGAME or ENDGAME
+	 * @return the position in Forsyth-Edwards Notation
+	 */
+	public static String fen (String name) {
+		switch (name) {
+			case "START":
+				return START;
+			case "KIWIPETE":
+				return KIWIPETE;
+			case "MIDDLEGAME":
+				return MIDDLEGAME;
+			case "ENDGAME":
+				return ENDGAME;
+		}
+		throw new IllegalArgumentException("unknown position: " + name);
+	}
+}
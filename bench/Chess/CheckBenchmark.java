@@ -0,0 +1,46 @@
+package Chess;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Board#calcCheck(Colour) for both colours, on positions where nobody is in
+ * check and, after a move, where somebody is.
+ *
+ * @author  Liam Marcassa
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckBenchmark {
+
+	@Param({"START", "KIWIPETE", "ENDGAME", "CHECK"})
+	public String position;
+
+	private Board b;
+
+	@Setup
+	public void setup () {
+		if (position.equals("CHECK")) {
+			// white queen on f7 checks the black king, protected by the bishop on c4
+			b = new Board(Position.fromFEN("r1bqkb1r/pppp1Qpp/2n2n2/4p3/2B1P3/8/PPPP1PPP/RNB1K1NR b KQkq - 0 4"));
+		} else {
+			b = BenchPositions.board(position);
+		}
+	}
+
+	/** @return the number of colours in check */
+	@Benchmark
+	public int calcCheck () {
+		int out = 0;
+		if (b.calcCheck(Colour.BLACK))
+			out++;
+		if (b.calcCheck(Colour.WHITE))
+			out++;
+		return out;
+	}
+}
@@ -0,0 +1,53 @@
+package Chess;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Board#boardMove(int) followed by Board#undoMove() for every legal move of
+ * the side to move, and the legal move generation that feeds a search.
+ *
+ * @author  Liam Marcassa
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MakeUnmakeBenchmark {
+
+	@Param({"START", "KIWIPETE", "MIDDLEGAME", "ENDGAME"})
+	public String position;
+
+	private Board b;
+	private Colour side;
+	private int[] moves = new int[Board.MAX_MOVES];
+	private int size;
+
+	@Setup
+	public void setup () {
+		b = BenchPositions.board(position);
+		side = b.getSideToMove();
+		size = b.generateLegalMoves(side,moves,0);
+	}
+
+	/** @return the hash after each move, combined, so nothing is optimized away */
+	@Benchmark
+	public long makeUnmake () {
+		long out = 0L;
+		for (int a = 0; a < size; a++) {
+			b.boardMove(moves[a]);
+			out ^= b.getHash();
+			b.undoMove();
+		}
+		return out;
+	}
+
+	/** @return the number of legal moves */
+	@Benchmark
+	public int generateLegal () {
+		return b.generateLegalMoves(side,moves,0);
+	}
+}
@@ -0,0 +1,74 @@
+package Chess;
+
+import Chess.Pieces.PieceInterface;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * PieceInterface#getMoves(byte,byte[],int) for every piece of one type belonging
+ * to the side to move, and the old allocating PieceInterface#getMoves(byte) for
+ * comparison. Pseudo-legal generation only, legality is not checked.
+ *
+ * @author  Liam Marcassa
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenBenchmark {
+
+	@Param({"START", "KIWIPETE", "ENDGAME"})
+	public String position;
+
+	@Param({"KING", "QUEEN", "ROOK", "BISHOP", "KNIGHT", "PAWN"})
+	public String type;
+
+	private Board b;
+	private PieceInterface[] piece;
+	private byte[] current;
+	private byte[] buffer = new byte[32];
+
+	@Setup
+	public void setup () {
+		b = BenchPositions.board(position);
+		int wanted = Board.typeOf((byte) type.charAt(type.equals("KNIGHT") ? 1 : 0));
+		int low = (b.getSideToMove() == Colour.BLACK) ? 0 : 16;
+
+		int count = 0;
+		for (int i = low; i < low+16; i++) {
+			if ((64&b.pieces[i]) == 64 && Board.typeOf(b.pieceNames[i]) == wanted)
+				count++;
+		}
+		piece = new PieceInterface[count];
+		current = new byte[count];
+		count = 0;
+		for (int i = low; i < low+16; i++) {
+			if ((64&b.pieces[i]) == 64 && Board.typeOf(b.pieceNames[i]) == wanted) {
+				piece[count] = b.getPiece(i);
+				current[count++] = b.pieces[i];
+			}
+		}
+	}
+
+	/** @return total number of moves, so the work is not optimized away */
+	@Benchmark
+	public int getMoves () {
+		int total = 0;
+		for (int i = 0; i < piece.length; i++)
+			total += piece[i].getMoves(current[i],buffer,0);
+		return total;
+	}
+
+	/** @return total length of the returned arrays */
+	@Benchmark
+	public int getMovesAllocating () {
+		int total = 0;
+		for (int i = 0; i < piece.length; i++)
+			total += piece[i].getMoves(current[i]).length;
+		return total;
+	}
+}
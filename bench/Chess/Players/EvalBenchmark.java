@@ -0,0 +1,45 @@
+package Chess.Players;
+
+import Chess.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Computer's two evaluation functions side by side on the same positions. The
+ * complex one needs the game state, which is detected once during setup as it
+ * is before a real search.
+ *
+ * @author  Liam Marcassa
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvalBenchmark {
+
+	@Param({"START", "KIWIPETE", "MIDDLEGAME", "ENDGAME"})
+	public String position;
+
+	private Computer computer;
+
+	@Setup
+	public void setup () {
+		Board b = BenchPositions.board(position);
+		computer = new Computer(b,b.getSideToMove(),false,1);
+		computer.detectState();
+	}
+
+	@Benchmark
+	public int simpleEval () {
+		return computer.simpleEval();
+	}
+
+	@Benchmark
+	public int bigEval () {
+		return computer.bigEval();
+	}
+}
@@ -0,0 +1,57 @@
+package Chess.Players;
+
+import Chess.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * A whole fixed-depth search from the root (iterative deepening up to depth),
+ * as Computer#makeMove() runs it (without playing the move). Every search
+ * starts from scratch, as Bench's do: a new Board and Computer, the same seed
+ * and an empty transposition table, so each one searches the same tree. This
+ * is the number that matters in the end, the other benchmarks explain where it
+ * comes from.
+ *
+ * @author  Liam Marcassa
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+	@Param({"START", "KIWIPETE", "MIDDLEGAME", "ENDGAME"})
+	public String position;
+
+	@Param({"4"})
+	public int depth;
+
+	@Param({"true", "false"})
+	public boolean simpleEval;
+
+	private Computer computer;
+
+	/**
+	 * A Computer keeps its table, history and counter moves from one search to the
+	 * next, so each search gets a new one (the setup is not timed)
+	 */
+	@Setup(Level.Invocation)
+	public void setup () {
+		Board b = BenchPositions.board(position);
+		computer = new Computer(b,b.getSideToMove(),simpleEval,depth);
+		computer.setSeed(Bench.SEED);
+		computer.setHashSize(TranspositionTable.DEFAULT_MB);
+		if (!simpleEval)
+			computer.detectState();
+	}
+
+	/** @return the chosen move */
+	@Benchmark
+	public int search () {
+		return computer.root(depth,0);
+	}
+}
@@ -0,0 +1,33 @@
+package Chess;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler attached, which adds the allocation
+ * rate (gc.alloc.rate.norm, bytes per operation) to each result. The hot paths
+ * are meant to allocate nothing, so any non-zero figure there is worth a look.
+ * The same can be had from the plain JMH runner with "-prof gc".
+ *
+ * Usage:
+ *   java -cp target/benchmarks.jar Chess.RunBenchmarks [regex]
+ *
+ * @author  Liam Marcassa
+ */
+public class RunBenchmarks {
+
+	/**
+	 * @param args  an optional regular expression selecting benchmarks by name
+	 * @throws RunnerException if a benchmark fails
+	 */
+	public static void main (String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+			.include((args.length > 0) ? args[0] : "Chess\\..*Benchmark")
+			.addProfiler(GCProfiler.class)
+			.build();
+		new Runner(options).run();
+	}
+}